@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+import sudoku.bench.Workload;
+
+/**
+ * The BoardWorkload class runs the benchmarked operations against the game classes.
+ * Generated 16x16 and 25x25 fixtures use a fixed seed, so every run measures the same boards.
+ */
+public class BoardWorkload implements Workload {
+    private static final long SEED = 2024;
+
+    // Commands replayed by parseInput, including malformed and out-of-range ones
+    private static final String[] COMMANDS = {
+            "1,2=3", "9,9=0", "4,7=8", "0,0=0", "12,3=4", "1,1=99", "abc", "1,2", "3,4=5=6", ",1=2"
+    };
+
+    private Board board;
+    private int[][] puzzle;
+    private int[][] scratch;
+    private Solver solver;
+
+    // The loaded board in packed storage and the scratch board copyPacked copies it into
+    private PackedBoard packed;
+    private PackedBoard packedScratch;
+
+    // Moves packed as (i << 16 | j << 8 | val), checked in a cycle by isValidMove
+    private int[] moves;
+    private int nextMove;
+    private int nextCommand;
+
+    private PrintStream console;
+
+    // Reused by the allocation-free parsing paths
+    private final UserChoice choice = new UserChoice();
+    private final CommandParser parser = new CommandParser();
+    private final String batch = String.join(" ", COMMANDS);
+
+    @Override
+    public void setUp(String name, String solverName) throws IOException {
+        // Rejected moves print an error; keep console I/O out of the measurements
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        Path file;
+        int N;
+        if (name.startsWith("generated-")) {
+            N = Integer.parseInt(name.substring("generated-".length()));
+            file = Files.createTempFile("sudoku-" + N + "-", ".txt");
+            file.toFile().deleteOnExit();
+            write(new PuzzleGenerator(N, new SplittableRandom(SEED)).generate(PuzzleGenerator.Difficulty.MEDIUM), file);
+        } else {
+            file = gameFiles().resolve(name);
+            N = name.equals("input1.txt") || name.equals("input1wrong.txt") ? 4 : 9;
+        }
+
+        Board.filename = file.toString();
+        board = new Board(N);
+        board.readBoard();
+        puzzle = new int[N][N];
+        scratch = new int[N][N];
+        for (int i = 0; i < N; i++)
+            System.arraycopy(board.tableau[i], 0, puzzle[i], 0, N);
+        solver = Solver.forName(solverName, N);
+        packed = board.toPacked();
+        packedScratch = new PackedBoard(N);
+
+        // Every value for every cell: a mix of accepted moves and rejected row/column/box/occupied moves
+        moves = new int[N * N * N];
+        int k = 0;
+        for (int i = 1; i <= N; i++)
+            for (int j = 1; j <= N; j++)
+                for (int val = 1; val <= N; val++)
+                    moves[k++] = i << 16 | j << 8 | val;
+    }
+
+    @Override
+    public void tearDown() {
+        System.setOut(console);
+    }
+
+    @Override
+    public boolean sudokuIsValid() {
+        return board.sudokuIsValid(board.tableau);
+    }
+
+    @Override
+    public boolean isValidMove() {
+        int move = moves[nextMove];
+        nextMove = nextMove + 1 == moves.length ? 0 : nextMove + 1;
+        return board.isValidMove(move >>> 16, (move >>> 8) & 0xFF, move & 0xFF);
+    }
+
+    @Override
+    public boolean checkValidity() {
+        return board.checkValidity();
+    }
+
+    @Override
+    public void readBoard() {
+        board.readBoard();
+    }
+
+    @Override
+    public void displayBoard() {
+        board.displayBoard();
+    }
+
+    @Override
+    public Object parseInput() {
+        String command = COMMANDS[nextCommand];
+        nextCommand = nextCommand + 1 == COMMANDS.length ? 0 : nextCommand + 1;
+        return Sudoku.parseInput(command);
+    }
+
+    @Override
+    public boolean parseInputInPlace() {
+        String command = COMMANDS[nextCommand];
+        nextCommand = nextCommand + 1 == COMMANDS.length ? 0 : nextCommand + 1;
+        return Sudoku.parseInput(command, 0, command.length(), choice);
+    }
+
+    @Override
+    public int parseBatch() {
+        int parsed = 0;
+        parser.reset(batch);
+        while (parser.hasNext())
+            if (parser.next(choice))
+                parsed++;
+        return parsed;
+    }
+
+    @Override
+    public int solve() {
+        for (int i = 0; i < puzzle.length; i++)
+            System.arraycopy(puzzle[i], 0, scratch[i], 0, puzzle.length);
+        return solver.solve(scratch, 2);
+    }
+
+    @Override
+    public int copyTable() {
+        for (int i = 0; i < puzzle.length; i++)
+            System.arraycopy(puzzle[i], 0, scratch[i], 0, puzzle.length);
+        return scratch[0][0];
+    }
+
+    @Override
+    public int copyPacked() {
+        packedScratch.copyFrom(packed);
+        return packedScratch.get(0, 0);
+    }
+
+    // Locates hw2-gamefiles from the repository root or from the benchmarks directory
+    private static Path gameFiles() {
+        String configured = System.getProperty("sudoku.gamefiles");
+        if (configured != null)
+            return Paths.get(configured);
+        Path local = Paths.get("hw2-gamefiles");
+        return Files.isDirectory(local) ? local : Paths.get("..", "hw2-gamefiles");
+    }
+
+    // Writes a board in the readBoard format without going through stdlib's Out
+    private static void write(int[][] grid, Path file) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int[] row : grid) {
+            for (int value : row)
+                sb.append(value).append(' ');
+            sb.append(System.lineSeparator());
+        }
+        Files.write(file, sb.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,84 @@
+package sudoku.bench;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of Board validation, move checking, file parsing, rendering and copying.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Param({"input1.txt", "input2.txt", "input3.txt", "input4.txt", "input5.txt", "generated-16", "generated-25"})
+    public String board;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workload = Workload.create();
+        workload.setUp(board, "backtrack");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        workload.tearDown();
+    }
+
+    @Benchmark
+    public boolean sudokuIsValid() {
+        return workload.sudokuIsValid();
+    }
+
+    @Benchmark
+    public boolean isValidMove() {
+        return workload.isValidMove();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean checkValidity() {
+        return workload.checkValidity();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void readBoard() {
+        workload.readBoard();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void displayBoard() {
+        workload.displayBoard();
+    }
+
+    @Benchmark
+    public int copyTable() {
+        return workload.copyTable();
+    }
+
+    @Benchmark
+    public int copyPacked() {
+        return workload.copyPacked();
+    }
+}
@@ -0,0 +1,81 @@
+package sudoku.bench;
+
+import java.io.IOException;
+
+/**
+ * The Workload interface is the bridge between the benchmarks and the game classes.
+ * The game lives in the default package, which code in a named package (as JMH requires for
+ * benchmarks) cannot reference; BoardWorkload implements this interface from the default package
+ * and is loaded by name, so every benchmark call is a plain monomorphic interface call.
+ */
+public interface Workload {
+
+    /**
+     * Loads a board and prepares the moves, commands and solver used by the other methods.
+     * board A file of hw2-gamefiles, or generated-16 / generated-25 for generated fixtures.
+     * solver The Solver.forName name used by solve.
+     */
+    void setUp(String board, String solver) throws IOException;
+
+    /**
+     * Restores anything setUp changed globally, such as System.out.
+     */
+    void tearDown();
+
+    boolean sudokuIsValid();
+
+    /**
+     * Checks the next move of a fixed cycle of accepted and rejected moves.
+     */
+    boolean isValidMove();
+
+    boolean checkValidity();
+
+    void readBoard();
+
+    /**
+     * Renders the loaded board to System.out, which setUp redirects to a null stream.
+     */
+    void displayBoard();
+
+    /**
+     * Parses the next command of a fixed cycle of well-formed and malformed commands.
+     */
+    Object parseInput();
+
+    /**
+     * Parses the next command of the same cycle into a reused UserChoice.
+     */
+    boolean parseInputInPlace();
+
+    /**
+     * Parses a buffered line holding the whole command cycle and returns the number of well-formed commands.
+     */
+    int parseBatch();
+
+    /**
+     * Solves a fresh copy of the loaded board and returns the number of solutions found (at most 2).
+     */
+    int solve();
+
+    /**
+     * Copies the loaded board into a scratch int[][] table row by row and returns its first cell.
+     */
+    int copyTable();
+
+    /**
+     * Copies the loaded board into a scratch PackedBoard with one arraycopy and returns its first cell.
+     */
+    int copyPacked();
+
+    /**
+     * Creates the default-package implementation.
+     */
+    static Workload create() {
+        try {
+            return (Workload) Class.forName("BoardWorkload").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("BoardWorkload is missing from the class path", e);
+        }
+    }
+}
@@ -0,0 +1,358 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * The Autosave class keeps a crash-safe copy of a game while it is played.
+ * Every change of a cell is appended to a write-ahead log as an 8-byte record (sequence number and a
+ * MoveJournal entry). Records are buffered in memory and a background thread writes and fsyncs them in
+ * batches every FLUSH_INTERVAL_MS, so the game loop never waits for the disk; at most the last batch is
+ * lost in a crash. The background thread also compacts: it writes the board into a memory-mapped
+ * checkpoint and switches to the other of two log files, so recovery reads one checkpoint and a short log.
+ *
+ * Files next to the game file:
+ *   <game-file>.ckpt      header, then two checkpoint slots written alternately (seq, CRC32, N*N values)
+ *   <game-file>.wal0/1    log records after the checkpoint, in the order they were made
+ * A torn checkpoint slot fails its CRC and the other slot is used: the log that was current before the
+ * last compaction still holds every record after it. A torn log record breaks the sequence and ends the replay.
+ */
+public class Autosave {
+    // Milliseconds between two batched log writes; the most a crash can lose
+    public static final long FLUSH_INTERVAL_MS = 20;
+
+    // Log records written since the last checkpoint before the log is compacted
+    private static final int COMPACT_RECORDS = 4096;
+
+    // Checkpoint file layout: "SDKC", version, N, game file size and modification time, then the slots
+    private static final int MAGIC = 0x53444B43;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int SLOT_HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 8;
+
+    private final int N;
+    private final Path checkpointFile;
+    private final Path[] logFiles;
+
+    // Written by the game thread under the lock: pending records, the current values and the last sequence number
+    private final Object lock = new Object();
+    private ByteBuffer pending = ByteBuffer.allocate(RECORD_SIZE * 1024);
+    private final byte[] cells;
+    private long sequence;
+
+    // Owned by the background thread
+    private ByteBuffer writing = ByteBuffer.allocate(RECORD_SIZE * 1024);
+    private final FileChannel checkpointChannel;
+    private final MappedByteBuffer checkpoint;
+    private final FileChannel[] logs = new FileChannel[2];
+    private int currentLog;
+    private int currentSlot;
+    private long checkpointSequence;
+    private int recordsSinceCheckpoint;
+    private final byte[] checkpointCells;
+    private final CRC32 crc = new CRC32();
+    private volatile IOException failure;
+
+    private final ScheduledExecutorService flusher;
+
+    // True if the board was replaced by a recovered game
+    private final boolean recovered;
+
+    /**
+     * Constructor to start autosaving the current tableau of a board from the given sequence number.
+     * recovered True to keep the checkpoint file of the recovered game, false to create a new one.
+     */
+    private Autosave(Board b, Path gameFile, boolean recovered, long sequence) throws IOException {
+        this.N = b.N;
+        this.checkpointFile = sibling(gameFile, ".ckpt");
+        this.logFiles = new Path[] { sibling(gameFile, ".wal0"), sibling(gameFile, ".wal1") };
+        this.cells = new byte[N * N];
+        this.checkpointCells = new byte[N * N];
+        for (int i = 0; i < N; i++)
+            for (int j = 0; j < N; j++)
+                cells[i * N + j] = (byte) b.tableau[i][j];
+        this.sequence = sequence;
+        this.recovered = recovered;
+
+        if (!recovered) {
+            Files.deleteIfExists(checkpointFile);
+            currentSlot = 1;
+        } else {
+            currentSlot = latestSlot(checkpointFile, N);
+        }
+        long size = HEADER_SIZE + 2L * slotSize(N);
+        checkpointChannel = FileChannel.open(checkpointFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        checkpoint = checkpointChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (!recovered) {
+            checkpoint.putInt(0, MAGIC);
+            checkpoint.putInt(4, VERSION);
+            checkpoint.putInt(8, N);
+            checkpoint.putLong(16, Files.size(gameFile));
+            checkpoint.putLong(24, Files.getLastModifiedTime(gameFile).toMillis());
+        }
+
+        // The current state becomes a checkpoint before the logs it replaces are truncated
+        System.arraycopy(cells, 0, checkpointCells, 0, cells.length);
+        writeCheckpoint(sequence);
+        for (int k = 0; k < 2; k++)
+            logs[k] = FileChannel.open(logFiles[k], StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "autosave");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts autosaving a board, first recovering it from an earlier autosave of the same game file.
+     * b The board being played, already read from gameFile.
+     * gameFile The game file the board was read from.
+     * returns the autosave; check isRecovered to see if the board was replaced by a recovered game.
+     */
+    public static Autosave open(Board b, Path gameFile) throws IOException {
+        long recoveredSequence = recover(b.tableau, gameFile);
+        boolean recovered = recoveredSequence >= 0;
+        if (recovered)
+            b.rebuildMasks();
+        return new Autosave(b, gameFile, recovered, Math.max(recoveredSequence, 0));
+    }
+
+    /**
+     * Checks if open replaced the board with a recovered game.
+     */
+    public boolean isRecovered() {
+        return recovered;
+    }
+
+    /**
+     * Records a change of a cell; called by Board for every move, undo and redo.
+     * cell The row-major index of the 0-based cell.
+     * oldValue The value of the cell before the change.
+     * newValue The value of the cell after the change.
+     */
+    public void append(int cell, int oldValue, int newValue) {
+        synchronized (lock) {
+            if (pending.remaining() < RECORD_SIZE) {
+                ByteBuffer larger = ByteBuffer.allocate(pending.capacity() * 2);
+                pending.flip();
+                larger.put(pending);
+                pending = larger;
+            }
+            pending.putInt((int) ++sequence);
+            pending.putInt(MoveJournal.pack(cell, oldValue, newValue));
+            cells[cell] = (byte) newValue;
+        }
+    }
+
+    /**
+     * Writes and fsyncs the pending records, then compacts if the log has grown long enough.
+     * Runs on the background thread.
+     */
+    private void flush() {
+        if (failure != null)
+            return;
+        try {
+            long upTo;
+            synchronized (lock) {
+                if (pending.position() == 0)
+                    return;
+                ByteBuffer batch = pending;
+                pending = writing;
+                writing = batch;
+                upTo = sequence;
+                if (recordsSinceCheckpoint + batch.position() / RECORD_SIZE >= COMPACT_RECORDS)
+                    System.arraycopy(cells, 0, checkpointCells, 0, cells.length);
+            }
+            writing.flip();
+            int records = writing.remaining() / RECORD_SIZE;
+            FileChannel log = logs[currentLog];
+            while (writing.hasRemaining())
+                log.write(writing);
+            writing.clear();
+            log.force(false);
+
+            recordsSinceCheckpoint += records;
+            if (recordsSinceCheckpoint >= COMPACT_RECORDS)
+                compact(upTo);
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    /**
+     * Makes the values copied at sequence number upTo a checkpoint and switches to the other log.
+     * Every record in the current log is at or below upTo, so the log it switches to can be emptied.
+     */
+    private void compact(long upTo) throws IOException {
+        writeCheckpoint(upTo);
+        currentLog ^= 1;
+        logs[currentLog].truncate(0);
+        logs[currentLog].position(0);
+        recordsSinceCheckpoint = 0;
+    }
+
+    /**
+     * Writes checkpointCells into the older slot and forces it to disk.
+     */
+    private void writeCheckpoint(long upTo) {
+        currentSlot ^= 1;
+        int slot = HEADER_SIZE + currentSlot * slotSize(N);
+        checkpoint.put(slot + SLOT_HEADER_SIZE, checkpointCells);
+        checkpoint.putLong(slot, upTo);
+        checkpoint.putInt(slot + 8, checksum(crc, upTo, checkpointCells));
+        checkpoint.force();
+        checkpointSequence = upTo;
+    }
+
+    /**
+     * Stops autosaving. Pending records are written first.
+     * discard True when the game ended normally, to delete the autosave files.
+     */
+    public void close(boolean discard) throws IOException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        for (FileChannel log : logs)
+            log.close();
+        checkpointChannel.close();
+        if (discard) {
+            Files.deleteIfExists(checkpointFile);
+            for (Path logFile : logFiles)
+                Files.deleteIfExists(logFile);
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * Returns the sequence number of the last checkpoint.
+     */
+    public long getCheckpointSequence() {
+        return checkpointSequence;
+    }
+
+    /**
+     * Rebuilds the tableau of a game from its autosave: the newest valid checkpoint, then the log after it.
+     * tableau The N x N array to fill; left unchanged if there is no valid autosave.
+     * gameFile The game file the autosave belongs to.
+     * returns the sequence number of the last recovered change, or -1 if there is no valid autosave.
+     */
+    public static long recover(int[][] tableau, Path gameFile) throws IOException {
+        int N = tableau.length;
+        Path checkpointFile = sibling(gameFile, ".ckpt");
+        byte[] values = new byte[N * N];
+        long upTo;
+        try (FileChannel channel = FileChannel.open(checkpointFile, StandardOpenOption.READ)) {
+            if (channel.size() != HEADER_SIZE + 2L * slotSize(N))
+                return -1;
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION || map.getInt(8) != N
+                    || map.getLong(16) != Files.size(gameFile)
+                    || map.getLong(24) != Files.getLastModifiedTime(gameFile).toMillis())
+                return -1;
+            int slot = latestSlot(map, N);
+            if (slot < 0)
+                return -1;
+            int offset = HEADER_SIZE + slot * slotSize(N);
+            upTo = map.getLong(offset);
+            map.get(offset + SLOT_HEADER_SIZE, values);
+        } catch (NoSuchFileException e) {
+            return -1;
+        }
+
+        // Each log holds consecutive records; replay them in sequence order after the checkpoint
+        ByteBuffer[] logs = new ByteBuffer[2];
+        for (int k = 0; k < 2; k++) {
+            try {
+                logs[k] = ByteBuffer.wrap(Files.readAllBytes(sibling(gameFile, ".wal" + k)));
+            } catch (NoSuchFileException e) {
+                logs[k] = ByteBuffer.allocate(0);
+            }
+        }
+        if (logs[1].remaining() >= RECORD_SIZE && (logs[0].remaining() < RECORD_SIZE
+                || logs[1].getInt(0) - logs[0].getInt(0) < 0)) {
+            ByteBuffer first = logs[1];
+            logs[1] = logs[0];
+            logs[0] = first;
+        }
+        for (ByteBuffer log : logs) {
+            while (log.remaining() >= RECORD_SIZE) {
+                int seq = log.getInt();
+                int entry = log.getInt();
+                if (seq - (int) upTo <= 0)
+                    continue;
+                int cell = MoveJournal.cell(entry);
+                // A gap or a torn record ends the recovery
+                if (seq != (int) (upTo + 1) || cell >= N * N
+                        || Math.abs(MoveJournal.oldValue(entry)) > N || Math.abs(MoveJournal.newValue(entry)) > N)
+                    break;
+                values[cell] = (byte) MoveJournal.newValue(entry);
+                upTo++;
+            }
+        }
+
+        for (int i = 0; i < N; i++)
+            for (int j = 0; j < N; j++)
+                tableau[i][j] = values[i * N + j];
+        return upTo;
+    }
+
+    /**
+     * Returns the valid slot with the higher sequence number, or -1 if both are torn.
+     */
+    private static int latestSlot(ByteBuffer map, int N) {
+        CRC32 crc = new CRC32();
+        byte[] values = new byte[N * N];
+        int best = -1;
+        long bestSequence = -1;
+        for (int slot = 0; slot < 2; slot++) {
+            int offset = HEADER_SIZE + slot * slotSize(N);
+            long seq = map.getLong(offset);
+            map.get(offset + SLOT_HEADER_SIZE, values);
+            if (map.getInt(offset + 8) == checksum(crc, seq, values) && seq > bestSequence) {
+                best = slot;
+                bestSequence = seq;
+            }
+        }
+        return best;
+    }
+
+    private static int latestSlot(Path checkpointFile, int N) throws IOException {
+        try (FileChannel channel = FileChannel.open(checkpointFile, StandardOpenOption.READ)) {
+            return latestSlot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), N);
+        }
+    }
+
+    private static int checksum(CRC32 crc, long seq, byte[] values) {
+        crc.reset();
+        for (int shift = 56; shift >= 0; shift -= 8)
+            crc.update((int) (seq >>> shift));
+        crc.update(values);
+        return (int) crc.getValue();
+    }
+
+    private static int slotSize(int N) {
+        return SLOT_HEADER_SIZE + N * N;
+    }
+
+    private static Path sibling(Path gameFile, String suffix) {
+        return gameFile.resolveSibling(gameFile.getFileName() + suffix);
+    }
+}
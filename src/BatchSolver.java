@@ -0,0 +1,216 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The BatchSolver class solves or validates a whole corpus of boards on all cores.
+ * The corpus holds one board per line, either as N*N characters ('.' or '0' for empty cells, 1-9 for
+ * givens) or as N*N whitespace-separated integers in the Board.readBoard encoding.
+ * The corpus is streamed through a BoardReader in chunks; every chunk is split into ranges on a
+ * work-stealing fork-join pool and its results are written to out-<corpus-file> in corpus order,
+ * one line per board.
+ * Solve results are kept in a SolutionCache by canonical key, so repeated and symmetric copies of a
+ * puzzle are solved once; -Dsudoku.cache=<entries> sets its size and 0 turns it off.
+ */
+public class BatchSolver {
+    // Number of boards a task handles without splitting further
+    private static final int GRAIN = 16;
+
+    // Number of 9x9 boards parsed and processed together; larger boards use proportionally smaller chunks
+    private static final int CHUNK = 1 << 16;
+
+    // The size of the Sudoku boards in the corpus
+    private final int N;
+
+    // True to solve every board, false to only check the Sudoku rules
+    private final boolean solve;
+
+    // Solver of every worker thread
+    private final ThreadLocal<Solver> solvers;
+
+    // Boards and busy nanoseconds of every worker thread, keyed by thread name
+    private final Map<String, long[]> perThread = new ConcurrentHashMap<>();
+    private final ThreadLocal<long[]> threadStats;
+
+    // Number of solved boards with more than one solution
+    private final AtomicInteger ambiguous = new AtomicInteger();
+
+    // Solve results by canonical key, shared by all workers, and the canonicalizer of every worker; null when off
+    private final SolutionCache cache;
+    private final ThreadLocal<Canonicalizer> canonicalizers;
+
+    /**
+     * Constructor to create a batch for boards of size N.
+     * N The size of the Sudoku boards.
+     * solve True to solve the boards, false to only validate them.
+     * solverName The Solver.forName name of the solver every worker uses.
+     * cacheSize The number of puzzles whose solve results are cached, or 0 for no cache.
+     */
+    public BatchSolver(int N, boolean solve, String solverName, int cacheSize) {
+        this.N = N;
+        this.solve = solve;
+        this.solvers = ThreadLocal.withInitial(() -> Solver.forName(solverName, N));
+        this.cache = cacheSize > 0 ? new SolutionCache(cacheSize) : null;
+        this.canonicalizers = ThreadLocal.withInitial(() -> new Canonicalizer(N));
+        this.threadStats = ThreadLocal.withInitial(() -> {
+            long[] stats = new long[2];
+            perThread.put(Thread.currentThread().getName(), stats);
+            return stats;
+        });
+    }
+
+    /**
+     * Processes a chunk of boards on the given pool.
+     * grids The parsed boards.
+     * status The BoardReader status of every board.
+     * count The number of boards in the chunk.
+     * results Receives one result line per board, in the same order.
+     */
+    public void run(int[][][] grids, int[] status, int count, String[] results, ForkJoinPool pool) {
+        pool.invoke(new Range(grids, status, results, 0, count));
+    }
+
+    /**
+     * Solves or validates a single board.
+     * returns the solved board in the readBoard encoding, or a short status.
+     */
+    private String process(int[][] grid, int status) {
+        if (status != BoardReader.OK || !solve)
+            return BoardReader.describe(status);
+
+        int solutions = cache != null ? cache.solve(grid, solvers.get(), canonicalizers.get())
+                : solvers.get().solve(grid, 2);
+        if (solutions == 0)
+            return "no solution";
+        if (solutions > 1)
+            ambiguous.incrementAndGet();
+        StringBuilder sb = new StringBuilder(N * N * 3);
+        for (int[] row : grid)
+            for (int value : row)
+                sb.append(value).append(' ');
+        sb.setLength(sb.length() - 1);
+        return sb.toString();
+    }
+
+    /**
+     * A contiguous range of boards, split in halves until it is small enough to run directly.
+     */
+    private class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[][][] grids;
+        private final int[] status;
+        private final String[] results;
+        private final int from;
+        private final int to;
+
+        Range(int[][][] grids, int[] status, String[] results, int from, int to) {
+            this.grids = grids;
+            this.status = status;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Range(grids, status, results, from, mid), new Range(grids, status, results, mid, to));
+                return;
+            }
+            long start = System.nanoTime();
+            for (int k = from; k < to; k++)
+                results[k] = process(grids[k], status[k]);
+            long[] stats = threadStats.get();
+            stats[0] += to - from;
+            stats[1] += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * The main method to run a batch from the command line.
+     * Usage: java BatchSolver <N> <corpus-file> <solve|validate> [backtrack|dlx|parallel]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 && args.length != 4) {
+            System.out.println("Please give the dimension N, a <corpus-file>, solve or validate and an optional solver");
+            return;
+        }
+        int N;
+        try {
+            N = Integer.parseInt(args[0]);
+            if (N != 4 && N != 9 && N != 16 && N != 25) {
+                System.out.println("The allowed value for N is 4, 9, 16 or 25!");
+                return;
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Please give the dimension N, a <corpus-file>, solve or validate and an optional solver");
+            return;
+        }
+        if (!args[2].equals("solve") && !args[2].equals("validate")) {
+            System.out.println("The mode must be solve or validate!");
+            return;
+        }
+        String solverName = args.length == 4 ? args[3] : "backtrack";
+        if (Solver.forName(solverName, N) == null) {
+            System.out.println("Unknown solver " + solverName + "! Please choose backtrack, dlx or parallel.");
+            return;
+        }
+
+        BatchSolver batch = new BatchSolver(N, args[2].equals("solve"), solverName,
+                Integer.getInteger("sudoku.cache", 1 << 16));
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        int chunk = Math.max(1024, CHUNK * 81 / (N * N));
+        int[][][] grids = new int[chunk][N][N];
+        int[] status = new int[chunk];
+        String[] results = new String[chunk];
+        String filePath = "out-" + Paths.get(args[1]).getFileName();
+        long total = 0;
+        long start = System.nanoTime();
+        try (BoardReader reader = new BoardReader(Paths.get(args[1]), N);
+             BufferedWriter out = Files.newBufferedWriter(Paths.get(filePath), StandardCharsets.US_ASCII)) {
+            int count;
+            do {
+                // Parse a chunk, process it in parallel, then write its results in order
+                count = 0;
+                while (count < chunk && (status[count] = reader.next(grids[count])) != BoardReader.END_OF_INPUT)
+                    count++;
+                batch.run(grids, status, count, results, pool);
+                for (int k = 0; k < count; k++) {
+                    out.write(results[k]);
+                    out.newLine();
+                }
+                total += count;
+            } while (count == chunk);
+        } catch (NoSuchFileException e) {
+            System.out.println("File " + args[1] + " not found");
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        double seconds = elapsed / 1e9;
+        System.out.printf("%d boards in %.3f s (%.0f boards/s) on %d threads%n",
+                total, seconds, total / seconds, pool.getParallelism());
+        if (batch.solve)
+            System.out.println("Boards with more than one solution: " + batch.ambiguous.get());
+        if (batch.solve && batch.cache != null)
+            System.out.println("Solution cache: " + batch.cache.getHits() + " hits, " + batch.cache.getMisses() + " misses");
+        for (Map.Entry<String, long[]> e : new TreeMap<>(batch.perThread).entrySet()) {
+            long[] stats = e.getValue();
+            System.out.printf("  %-36s %8d boards %10.0f boards/s%n",
+                    e.getKey(), stats[0], stats[1] == 0 ? 0.0 : stats[0] / (stats[1] / 1e9));
+        }
+        System.out.println("Results written to " + filePath);
+        pool.shutdown();
+    }
+}
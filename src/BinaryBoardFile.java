@@ -0,0 +1,338 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The BinaryBoardFile class reads archives of boards stored in a packed binary format.
+ * A file starts with a 16-byte header:
+ * - int magic "SDKB", short version, byte N, byte bits per cell, int record size, int reserved;
+ * followed by fixed-size records, one per board:
+ * - byte flags (FLAG_COMPLETE when no cell is empty), byte reserved, short number of filled cells;
+ * - the absolute cell values, bits-per-cell bits each in row-major order (4 bits for 9x9);
+ * - the given bitmap, one bit per cell, set when the cell holds a given (a negative value).
+ * Bit fields are packed least significant bit first. Records are mapped in windows, so board #k
+ * is loaded in O(1) without reading the boards before it.
+ * The Writer nested class appends boards, and main converts to and from the readBoard text format.
+ */
+public class BinaryBoardFile implements Closeable {
+    // File header layout
+    public static final int MAGIC = 0x53444B42;
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+
+    // Record header layout and flags
+    public static final int RECORD_HEADER_SIZE = 4;
+    public static final int FLAG_COMPLETE = 1;
+
+    // Target size of the mapped windows; a window always holds whole records
+    private static final long WINDOW = 64L << 20;
+
+    // The size of the Sudoku boards and their record layout
+    private final int N;
+    private final int bitsPerCell;
+    private final int recordSize;
+    private final long count;
+
+    private final FileChannel channel;
+
+    // Lazily mapped windows of recordsPerWindow records each
+    private final MappedByteBuffer[] windows;
+    private final int recordsPerWindow;
+
+    /**
+     * Constructor to open a binary board file for random access.
+     * path The file to read.
+     * Throws IOException if the file cannot be read or is not a binary board file.
+     */
+    public BinaryBoardFile(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        int read = 0;
+        while (header.hasRemaining() && read >= 0)
+            read = channel.read(header);
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC || header.getShort() != VERSION) {
+            channel.close();
+            throw new IOException(path + " is not a binary board file");
+        }
+        N = header.get();
+        bitsPerCell = header.get();
+        recordSize = header.getInt();
+        if (N < 1 || recordSize != recordSize(N)) {
+            channel.close();
+            throw new IOException(path + " has an inconsistent record size");
+        }
+        // Values would be decoded from the wrong bits
+        if (bitsPerCell != bitsPerCell(N)) {
+            channel.close();
+            throw new IOException(path + " has " + bitsPerCell + " bits per cell, boards of size " + N + " need " + bitsPerCell(N));
+        }
+        count = (channel.size() - HEADER_SIZE) / recordSize;
+        recordsPerWindow = (int) Math.max(1, WINDOW / recordSize);
+        windows = new MappedByteBuffer[(int) ((count + recordsPerWindow - 1) / recordsPerWindow)];
+    }
+
+    /**
+     * Returns the size N of the boards in the file.
+     */
+    public int getN() {
+        return N;
+    }
+
+    /**
+     * Returns the number of boards in the file.
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Loads board #index into dest in the readBoard encoding (negative givens, 0 for empty cells).
+     * index The 0-based board number.
+     * dest The N x N array to fill.
+     * Throws IOException if the window cannot be mapped.
+     */
+    public void read(long index, int[][] dest) throws IOException {
+        MappedByteBuffer window = record(index);
+        int valueBase = (int) (index % recordsPerWindow) * recordSize + RECORD_HEADER_SIZE;
+        for (int k = 0; k < N * N; k++)
+            dest[k / N][k % N] = cell(window, valueBase, k);
+    }
+
+    /**
+     * Loads board #index into packed storage, e.g. the next board of a PackedBoard arena.
+     * index The 0-based board number.
+     * dest The packed board of size N to fill.
+     * Throws IOException if the window cannot be mapped.
+     */
+    public void read(long index, PackedBoard dest) throws IOException {
+        MappedByteBuffer window = record(index);
+        int valueBase = (int) (index % recordsPerWindow) * recordSize + RECORD_HEADER_SIZE;
+        for (int k = 0; k < N * N; k++)
+            dest.set(k / N, k % N, cell(window, valueBase, k));
+    }
+
+    private MappedByteBuffer record(long index) throws IOException {
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("Board " + index + " of " + count);
+        return window(index);
+    }
+
+    // Decodes cell k of the record whose values start at valueBase, in the readBoard encoding
+    private int cell(MappedByteBuffer window, int valueBase, int k) {
+        int givenBase = valueBase + (N * N * bitsPerCell + 7) / 8;
+        int bit = k * bitsPerCell;
+        // A value spans at most two bytes
+        int word = window.get(valueBase + bit / 8) & 0xFF;
+        if ((bit & 7) + bitsPerCell > 8)
+            word |= (window.get(valueBase + bit / 8 + 1) & 0xFF) << 8;
+        int value = (word >>> (bit & 7)) & ((1 << bitsPerCell) - 1);
+        boolean given = (window.get(givenBase + k / 8) & (1 << (k & 7))) != 0;
+        return given ? -value : value;
+    }
+
+    /**
+     * Returns the flags of board #index, e.g. FLAG_COMPLETE.
+     */
+    public int flags(long index) throws IOException {
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("Board " + index + " of " + count);
+        return window(index).get((int) (index % recordsPerWindow) * recordSize) & 0xFF;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // Returns the window that holds board #index, mapping it on first use
+    private MappedByteBuffer window(long index) throws IOException {
+        int w = (int) (index / recordsPerWindow);
+        if (windows[w] == null) {
+            long first = (long) w * recordsPerWindow;
+            long records = Math.min(recordsPerWindow, count - first);
+            windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first * recordSize, records * recordSize);
+        }
+        return windows[w];
+    }
+
+    /**
+     * Returns the number of bits needed to store a value in [0, N].
+     */
+    public static int bitsPerCell(int N) {
+        return 32 - Integer.numberOfLeadingZeros(N);
+    }
+
+    /**
+     * Returns the size in bytes of one record for boards of size N.
+     */
+    public static int recordSize(int N) {
+        int cells = N * N;
+        return RECORD_HEADER_SIZE + (cells * bitsPerCell(N) + 7) / 8 + (cells + 7) / 8;
+    }
+
+    /**
+     * The Writer class appends boards to a new binary board file.
+     */
+    public static class Writer implements Closeable {
+        private final int N;
+        private final int bitsPerCell;
+        private final FileChannel channel;
+
+        // Reused buffer holding up to BATCH records, written out when full
+        private static final int BATCH = 1024;
+        private final int recordSize;
+        private final ByteBuffer batch;
+
+        /**
+         * Constructor to create (or truncate) a binary board file for boards of size N.
+         * Throws IOException if the file cannot be written.
+         */
+        public Writer(Path path, int N) throws IOException {
+            this.N = N;
+            this.bitsPerCell = bitsPerCell(N);
+            this.recordSize = recordSize(N);
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            this.batch = ByteBuffer.allocate(recordSize * BATCH);
+            batch.putInt(MAGIC).putShort(VERSION).put((byte) N).put((byte) bitsPerCell)
+                    .putInt(recordSize).putInt(0);
+        }
+
+        /**
+         * Appends a board in the readBoard encoding.
+         * grid The N x N board; values must be in [-N, N].
+         */
+        public void append(int[][] grid) throws IOException {
+            if (batch.remaining() < recordSize)
+                flush();
+            int cells = N * N;
+            int start = batch.position();
+            int valueBase = start + RECORD_HEADER_SIZE;
+            int givenBase = valueBase + (cells * bitsPerCell + 7) / 8;
+            byte[] bytes = batch.array();
+            Arrays.fill(bytes, start, start + recordSize, (byte) 0);
+            int filled = 0;
+            for (int k = 0; k < cells; k++) {
+                int value = grid[k / N][k % N];
+                if (value != 0)
+                    filled++;
+                int bit = k * bitsPerCell;
+                int word = Math.abs(value) << (bit & 7);
+                bytes[valueBase + bit / 8] |= (byte) word;
+                if ((bit & 7) + bitsPerCell > 8)
+                    bytes[valueBase + bit / 8 + 1] |= (byte) (word >>> 8);
+                if (value < 0)
+                    bytes[givenBase + k / 8] |= (byte) (1 << (k & 7));
+            }
+            bytes[start] = (byte) (filled == cells ? FLAG_COMPLETE : 0);
+            bytes[start + 2] = (byte) (filled >>> 8);
+            bytes[start + 3] = (byte) filled;
+            batch.position(start + recordSize);
+        }
+
+        // Writes the buffered records to the file
+        private void flush() throws IOException {
+            batch.flip();
+            while (batch.hasRemaining())
+                channel.write(batch);
+            batch.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            channel.close();
+        }
+    }
+
+    /**
+     * The main method to convert between the text and binary formats.
+     * Usage: java BinaryBoardFile pack <N> <binary-file> <game-file>...
+     *        java BinaryBoardFile pack-lines <N> <binary-file> <corpus-file>
+     *        java BinaryBoardFile unpack <binary-file> <index> <game-file>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 4 && (args[0].equals("pack") || args[0].equals("pack-lines"))) {
+            int N;
+            try {
+                N = Integer.parseInt(args[1]);
+            } catch (NumberFormatException e) {
+                printUsage();
+                return;
+            }
+            if (N != 4 && N != 9 && N != 16 && N != 25) {
+                System.out.println("The allowed value for N is 4, 9, 16 or 25!");
+                return;
+            }
+            int[][] grid = new int[N][N];
+            long written = 0;
+            try (Writer out = new Writer(Paths.get(args[2]), N)) {
+                for (int k = 3; k < args.length; k++) {
+                    try (BoardReader in = new BoardReader(Paths.get(args[k]), N)) {
+                        if (args[0].equals("pack")) {
+                            int status = in.readFile(grid);
+                            if (status != BoardReader.OK) {
+                                System.out.println("Skipping " + args[k] + ": " + BoardReader.describe(status));
+                                continue;
+                            }
+                            out.append(grid);
+                            written++;
+                        } else {
+                            int status;
+                            while ((status = in.next(grid)) != BoardReader.END_OF_INPUT) {
+                                if (status != BoardReader.OK) {
+                                    System.out.println("Skipping board " + in.getBoardCount() + ": " + BoardReader.describe(status));
+                                    continue;
+                                }
+                                out.append(grid);
+                                written++;
+                            }
+                        }
+                    } catch (NoSuchFileException e) {
+                        System.out.println("File " + args[k] + " not found");
+                    }
+                }
+            }
+            System.out.println(written + " boards written to " + args[2]);
+        } else if (args.length == 4 && args[0].equals("unpack")) {
+            long index;
+            try {
+                index = Long.parseLong(args[2]);
+            } catch (NumberFormatException e) {
+                printUsage();
+                return;
+            }
+            try (BinaryBoardFile in = new BinaryBoardFile(Paths.get(args[1]))) {
+                if (index < 0 || index >= in.size()) {
+                    System.out.println(args[1] + " holds boards 0 to " + (in.size() - 1));
+                    return;
+                }
+                Board b = new Board(in.getN());
+                in.read(index, b.tableau);
+                b.writeBoard(args[3]);
+            } catch (NoSuchFileException e) {
+                System.out.println("File " + args[1] + " not found");
+                return;
+            } catch (IOException e) {
+                System.out.println("Error: " + e.getMessage());
+                return;
+            }
+            System.out.println("Board " + args[2] + " written to " + args[3]);
+        } else {
+            printUsage();
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: pack <N> <binary-file> <game-file>... | pack-lines <N> <binary-file> <corpus-file>"
+                + " | unpack <binary-file> <index> <game-file>");
+    }
+}
@@ -0,0 +1,321 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The BitboardSolver class solves Sudoku boards by backtracking over bitmask candidate sets.
+ * Every search node first propagates naked and hidden singles, then branches on the empty cell
+ * with the fewest candidates (minimum remaining values).
+ * All search state is preallocated per board size, so solving allocates nothing.
+ */
+public class BitboardSolver implements Solver {
+    // The size of the Sudoku board and the number of cells
+    private final int N;
+    private final int cells;
+
+    // Bitmask with one bit set for every value 1..N
+    private final int full;
+
+    // Row, column and subgrid of every flattened cell
+    private final int[] rowOf;
+    private final int[] colOf;
+    private final int[] boxOf;
+
+    // The cells of every unit (N rows, then N columns, then N subgrids) and the slot of its mask in a state
+    private final int[][] unitCells;
+    private final int[] unitSlot;
+
+    // Layout of a search state: cell values, row/column/subgrid masks, the empty count and the list of empty cells
+    private final int rowBase;
+    private final int colBase;
+    private final int boxBase;
+    private final int countSlot;
+    private final int emptyBase;
+
+    // One search state per depth, so that backtracking is a simple return
+    private final int[][] stack;
+
+    // The first solution found by the current search
+    private final int[] solution;
+
+    private int found;
+    private int limit;
+    private long nodes;
+
+    // Searches stop after this many nodes; aborted records that the limit was hit
+    private long nodeLimit = Long.MAX_VALUE;
+    private boolean aborted;
+
+    // Source of the branch order, or null to try candidates from the smallest value up
+    private SplittableRandom random;
+
+    /**
+     * Constructor to create a solver for boards of size N.
+     * N The size of the Sudoku board, a perfect square of at most 25.
+     */
+    public BitboardSolver(int N) {
+        int s = (int) Math.sqrt(N);
+        if (s * s != N || N > 25)
+            throw new IllegalArgumentException("Unsupported board size " + N);
+        this.N = N;
+        this.cells = N * N;
+        this.full = (1 << N) - 1;
+
+        rowOf = new int[cells];
+        colOf = new int[cells];
+        boxOf = new int[cells];
+        unitCells = new int[3 * N][N];
+        unitSlot = new int[3 * N];
+
+        rowBase = cells;
+        colBase = rowBase + N;
+        boxBase = colBase + N;
+        countSlot = boxBase + N;
+        emptyBase = countSlot + 1;
+
+        int[] fill = new int[3 * N];
+        for (int cell = 0; cell < cells; cell++) {
+            int r = cell / N, c = cell % N, b = (r / s) * s + c / s;
+            rowOf[cell] = r;
+            colOf[cell] = c;
+            boxOf[cell] = b;
+            unitCells[r][fill[r]++] = cell;
+            unitCells[N + c][fill[N + c]++] = cell;
+            unitCells[2 * N + b][fill[2 * N + b]++] = cell;
+        }
+        for (int u = 0; u < N; u++) {
+            unitSlot[u] = rowBase + u;
+            unitSlot[N + u] = colBase + u;
+            unitSlot[2 * N + u] = boxBase + u;
+        }
+
+        stack = new int[cells + 1][emptyBase + cells];
+        solution = new int[cells];
+    }
+
+    /**
+     * Default constructor to create a solver for 9x9 boards.
+     */
+    public BitboardSolver() {
+        this(9);
+    }
+
+    /**
+     * Makes the search try the candidates of every branching cell in random order, which turns
+     * solving an empty grid into generating a random full grid.
+     * random The source of randomness, or null to restore the default smallest-value-first order.
+     */
+    public void setRandom(SplittableRandom random) {
+        this.random = random;
+    }
+
+    /**
+     * Limits the number of search nodes of every following search.
+     * A search that hits the limit stops early and its solution count is only a lower bound.
+     * nodeLimit The maximum number of nodes, e.g. 1 to allow singles propagation but no guessing.
+     */
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * Checks if the last search stopped because it hit the node limit.
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    @Override
+    public int solve(int[][] grid, int limit) {
+        int count = search(grid, limit);
+        if (count > 0)
+            for (int cell = 0; cell < cells; cell++)
+                if (grid[rowOf[cell]][colOf[cell]] == 0)
+                    grid[rowOf[cell]][colOf[cell]] = solution[cell];
+        return count;
+    }
+
+    @Override
+    public int countSolutions(int[][] grid, int limit) {
+        return search(grid, limit);
+    }
+
+    @Override
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    /**
+     * Loads the grid into the root state and runs the search.
+     * returns the number of solutions found, or 0 if the grid is malformed or its givens conflict.
+     */
+    private int search(int[][] grid, int limit) {
+        this.found = 0;
+        this.limit = limit;
+        this.nodes = 0;
+        this.aborted = false;
+        long start = Metrics.start();
+        if (limit > 0 && load(grid))
+            search(0);
+        Metrics.SOLVE_BACKTRACK.stop(start);
+        Metrics.SEARCH_NODES.add(nodes);
+        return found;
+    }
+
+    /**
+     * Copies the grid into the root search state.
+     * returns false if the grid has the wrong size, an out-of-range value or a repeated value in a unit.
+     */
+    private boolean load(int[][] grid) {
+        if (grid.length != N)
+            return false;
+        int[] s = stack[0];
+        Arrays.fill(s, rowBase, countSlot, 0);
+        int empty = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            int[] row = grid[rowOf[cell]];
+            if (row.length != N)
+                return false;
+            int value = Math.abs(row[colOf[cell]]);
+            if (value > N)
+                return false;
+            s[cell] = value;
+            if (value == 0) {
+                s[emptyBase + empty++] = cell;
+            } else {
+                int bit = 1 << (value - 1);
+                if (((s[rowBase + rowOf[cell]] | s[colBase + colOf[cell]] | s[boxBase + boxOf[cell]]) & bit) != 0)
+                    return false;
+                place(s, cell, bit);
+            }
+        }
+        s[countSlot] = empty;
+        return true;
+    }
+
+    /**
+     * Visits one search node: propagates singles, records a solution or branches on the MRV cell.
+     */
+    private void search(int depth) {
+        if (++nodes > nodeLimit) {
+            aborted = true;
+            return;
+        }
+        int[] s = stack[depth];
+        if (!propagate(s))
+            return;
+
+        int n = s[countSlot];
+        if (n == 0) {
+            if (found++ == 0)
+                System.arraycopy(s, 0, solution, 0, cells);
+            return;
+        }
+
+        // Pick the empty cell with the fewest candidates; after propagation no cell has fewer than 2
+        int best = -1, bestCandidates = 0, bestCount = N + 1;
+        for (int k = emptyBase, end = emptyBase + n; k < end; k++) {
+            int cell = s[k];
+            int candidates = candidates(s, cell);
+            int count = Integer.bitCount(candidates);
+            if (count < bestCount) {
+                best = cell;
+                bestCandidates = candidates;
+                bestCount = count;
+                if (count == 2)
+                    break;
+            }
+        }
+
+        int[] next = stack[depth + 1];
+        while (bestCandidates != 0 && found < limit && !aborted) {
+            int bit = random == null ? Integer.lowestOneBit(bestCandidates) : randomBit(bestCandidates);
+            bestCandidates ^= bit;
+            System.arraycopy(s, 0, next, 0, emptyBase + n);
+            place(next, best, bit);
+            search(depth + 1);
+        }
+    }
+
+    /**
+     * Applies naked and hidden singles to the state until nothing more is forced.
+     * returns false if a contradiction was found (a cell or a value with no place left).
+     */
+    private boolean propagate(int[] s) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+
+            // Naked singles: drop filled cells from the empty list and fill cells with one candidate
+            int n = s[countSlot], kept = 0;
+            for (int k = 0; k < n; k++) {
+                int cell = s[emptyBase + k];
+                if (s[cell] != 0)
+                    continue;
+                int candidates = candidates(s, cell);
+                if (candidates == 0)
+                    return false;
+                if ((candidates & (candidates - 1)) == 0) {
+                    place(s, cell, candidates);
+                    changed = true;
+                } else {
+                    s[emptyBase + kept++] = cell;
+                }
+            }
+            s[countSlot] = kept;
+            if (changed || kept == 0)
+                continue;
+
+            // Hidden singles: a value that fits in exactly one cell of a unit must go there
+            for (int u = 0; u < unitCells.length; u++) {
+                int[] unit = unitCells[u];
+                int once = 0, twice = 0;
+                for (int cell : unit) {
+                    if (s[cell] == 0) {
+                        int candidates = candidates(s, cell);
+                        twice |= once & candidates;
+                        once |= candidates;
+                    }
+                }
+                if ((once | s[unitSlot[u]]) != full)
+                    return false;
+                int hidden = once & ~twice;
+                while (hidden != 0) {
+                    int bit = Integer.lowestOneBit(hidden);
+                    hidden ^= bit;
+                    int target = -1;
+                    for (int cell : unit) {
+                        if (s[cell] == 0 && (candidates(s, cell) & bit) != 0) {
+                            target = cell;
+                            break;
+                        }
+                    }
+                    if (target < 0)
+                        return false;
+                    place(s, target, bit);
+                    changed = true;
+                }
+            }
+        }
+        return true;
+    }
+
+    // Returns one of the set bits of candidates, chosen uniformly at random
+    private int randomBit(int candidates) {
+        for (int skip = random.nextInt(Integer.bitCount(candidates)); skip > 0; skip--)
+            candidates &= candidates - 1;
+        return Integer.lowestOneBit(candidates);
+    }
+
+    // Returns the values that can still be placed in the cell
+    private int candidates(int[] s, int cell) {
+        return full & ~(s[rowBase + rowOf[cell]] | s[colBase + colOf[cell]] | s[boxBase + boxOf[cell]]);
+    }
+
+    // Places the value with the given bit in the cell and marks it as used in the cell's units
+    private void place(int[] s, int cell, int bit) {
+        s[cell] = Integer.numberOfTrailingZeros(bit) + 1;
+        s[rowBase + rowOf[cell]] |= bit;
+        s[colBase + colOf[cell]] |= bit;
+        s[boxBase + boxOf[cell]] |= bit;
+    }
+}
@@ -1,5 +1,8 @@
-import java.util.InputMismatchException;
-import java.lang.IllegalArgumentException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 /**
  * The Board class represents a Sudoku board with methods for displaying, reading, and validating the puzzle.
@@ -11,162 +14,284 @@ public class Board {
     // 2D array to store the Sudoku values
     public int[][] tableau;
 
+    // Results of findViolation and checkMove: the first Sudoku rule broken by a table or a move.
+    // BoardReader numbers its own status codes after these, so the two sets never overlap
+    public static final int VALID = 0;
+    public static final int ROW_RULE = 1;
+    public static final int COLUMN_RULE = 2;
+    public static final int BOX_RULE = 3;
+    public static final int CELL_OCCUPIED = 4;
+    public static final int DIAGONAL_RULE = 5;
+
     // Filename to read and save the Sudoku board
     public static String filename;
 
+    // The units of this kind of board and their peer tables, shared by all boards of the same kind
+    public final Geometry geometry;
+
+    // Bitmask of the values used in every unit of the geometry (bit v-1 is set when v is present)
+    private final int[] unitMask;
+
+    // Copies of value v in unit u at valueCount[u * N + v - 1], so a repeated value keeps its bit when one copy goes
+    private final byte[] valueCount;
+
+    // Number of empty cells and of repeated copies of a value in a unit, kept up to date with the masks
+    private int emptyCells;
+    private int conflicts;
+
+    // Draws the board for displayBoard, created on first use
+    private BoardRenderer renderer;
+
+    // Per-board game file and output stream; when unset the static filename and System.out are used
+    private String gameFile;
+    private PrintStream out;
+
+    // Records the moves made through updateBoard for undo and redo; null until startJournal or loadJournal
+    private MoveJournal journal;
+
+    // Logs every change of a cell for crash recovery; null unless autosave is on
+    private Autosave autosave;
+
+    // Pencil marks kept up to date by setCell; created on first use
+    private CandidateEngine candidateEngine;
+
     /**
      * Constructor to initialize the Sudoku board with size N and a filename.
      * N The size of the Sudoku board.
      */
     public Board(int N) {
-        this.N = N;
+        this(Geometry.standard(N));
+    }
+
+    /**
+     * Constructor to initialize a board of any geometry, e.g. 6x6 with 2x3 boxes, diagonal or jigsaw.
+     * geometry The units of the board.
+     */
+    public Board(Geometry geometry) {
+        this.N = geometry.N;
+        this.geometry = geometry;
         tableau = new int[N][N];
+        unitMask = new int[geometry.unitCount];
+        valueCount = new byte[geometry.unitCount * N];
+        emptyCells = N * N;
     }
     /**
      * Default constructor to initialize the Sudoku board with size N and a filename.
      */
     public Board(){
-        this.N = 9;
-        tableau = new int[N][N];
+        this(9);
     }
 
     /**
-     * Displays the Sudoku board with proper formatting.
+     * Sets the game file of this board only, so that boards of different games can live in one process.
+     * gameFile The file read by readBoard; saveBoard writes to out-<gameFile>.
      */
-    public void displayBoard() {
-        // Calculate the size of subgroups in the Sudoku board
-        int subgridSize = (int) Math.sqrt(N);
+    public void setGameFile(String gameFile) {
+        this.gameFile = gameFile;
+    }
 
-        // Iterate through each row of the Sudoku board
-        for (int i = 0; i < N; i++) {
-            // Print horizontal lines to separate subgroups sqrt(N)
-            if (i % subgridSize == 0) {
-                for (int k = 0; k < subgridSize; k++) {
-                    System.out.print("+");
-                    for (int j = 0; j < N + 7; j++)
-                        System.out.print("-");
-                }
-                System.out.println("+");
-            }
+    /**
+     * Returns the game file of this board, or the static filename if none was set.
+     */
+    public String getGameFile() {
+        return gameFile != null ? gameFile : filename;
+    }
 
-            // Print vertical lines and Sudoku values for each column
-            System.out.print("| ");
-            for (int j = 0; j < N; j++) {
-                if (tableau[i][j] < 0) {
-                    System.out.printf(" (%-1d) ", Math.abs(tableau[i][j]));
-                } else if (tableau[i][j] == 0) {
-                    System.out.print("  .  ");
-                } else {
-                    System.out.printf("  %-1d  ", tableau[i][j]);
-                }
+    /**
+     * Sets the stream that the board and its error messages are printed to, instead of System.out.
+     */
+    public void setOutput(PrintStream out) {
+        this.out = out;
+    }
 
-                // Print vertical lines to separate subgroups
-                if ((j + 1) % subgridSize == 0 && j != N - 1) {
-                    System.out.print("| ");
-                }
-            }
-            System.out.print("|");
-            System.out.println();
-        }
+    private PrintStream out() {
+        return out != null ? out : System.out;
+    }
 
-        // Print horizontal lines to complete the Sudoku board
-        for (int k = 0; k < subgridSize; k++) {
-            System.out.print("+");
-            for (int j = 0; j < N + 7; j++)
-                System.out.print("-");
-        }
-        System.out.println("+");
+    /**
+     * Copies the values of another board of the same size, e.g. a game loaded once for many sessions.
+     * other The board to copy.
+     */
+    public void copyFrom(Board other) {
+        for (int i = 0; i < N; i++)
+            System.arraycopy(other.tableau[i], 0, tableau[i], 0, N);
+        rebuildMasks();
+    }
+
+    /**
+     * Writes the values of this board into packed storage, e.g. a board of a PackedBoard arena.
+     * packed The packed board of the same size to fill.
+     */
+    public void storePacked(PackedBoard packed) {
+        packed.load(tableau);
+    }
+
+    /**
+     * Returns a packed copy of this board.
+     */
+    public PackedBoard toPacked() {
+        PackedBoard packed = new PackedBoard(N);
+        packed.load(tableau);
+        return packed;
+    }
+
+    /**
+     * Replaces the values of this board with a packed board of the same size.
+     * packed The packed board to copy.
+     */
+    public void loadPacked(PackedBoard packed) {
+        packed.store(tableau);
+        rebuildMasks();
+    }
+
+    /**
+     * Displays the Sudoku board with proper formatting.
+     * The frame is built by a BoardRenderer and written to the output stream in one call.
+     */
+    public void displayBoard() {
+        long start = Metrics.start();
+        getRenderer().display(tableau, out());
+        Metrics.DISPLAY_BOARD.stop(start);
+    }
+
+    /**
+     * Returns the renderer used by displayBoard, e.g. to turn on its ANSI diff mode.
+     */
+    public BoardRenderer getRenderer() {
+        if (renderer == null)
+            renderer = new BoardRenderer(N, geometry.boxRows, geometry.boxColumns);
+        return renderer;
     }
 
     /**
      * Reads the Sudoku board from a file and populates the 2D array.
+     * The file is parsed and validated in a single pass straight into the tableau.
      */
     public void readBoard() {
-        if (!checkValidity())
+        long start = Metrics.start();
+        if (!parseFile(tableau))
             System.exit(0);
-        In fin = new In(filename);
+        rebuildMasks();
+        Metrics.READ_BOARD.stop(start);
+    }
+
+    /**
+     * Recomputes the bitmasks of every unit from the tableau.
+     * Must be called whenever the tableau is filled without going through updateBoard.
+     */
+    public void rebuildMasks() {
+        Arrays.fill(unitMask, 0);
+        Arrays.fill(valueCount, (byte) 0);
+        emptyCells = N * N;
+        conflicts = 0;
         for (int i = 0; i < N; i++)
-            for (int j = 0; j < N; j++) {
-                tableau[i][j] = fin.readInt();
-            }
-        fin.close();
+            for (int j = 0; j < N; j++)
+                if (tableau[i][j] != 0)
+                    addValue(i, j, Math.abs(tableau[i][j]));
+        if (candidateEngine != null)
+            candidateEngine.refresh();
+    }
+
+    // Counts a value placed in the 0-based cell (i, j) in every unit of the cell
+    private void addValue(int i, int j, int value) {
+        int[] units = geometry.cellUnits;
+        int bit = 1 << (value - 1);
+        for (int k = geometry.cellUnitStart[i * N + j], end = geometry.cellUnitStart[i * N + j + 1]; k < end; k++) {
+            int u = units[k];
+            if (valueCount[u * N + value - 1]++ > 0)
+                conflicts++;
+            unitMask[u] |= bit;
+        }
+        emptyCells--;
+    }
+
+    // Uncounts a value removed from the 0-based cell (i, j); its bit stays set in units that still hold a copy
+    private void removeValue(int i, int j, int value) {
+        int[] units = geometry.cellUnits;
+        int bit = 1 << (value - 1);
+        for (int k = geometry.cellUnitStart[i * N + j], end = geometry.cellUnitStart[i * N + j + 1]; k < end; k++) {
+            int u = units[k];
+            if (--valueCount[u * N + value - 1] > 0)
+                conflicts--;
+            else
+                unitMask[u] &= ~bit;
+        }
+        emptyCells++;
+    }
+
+    // Returns the values used in any unit of the 0-based cell (i, j)
+    private int usedValues(int i, int j) {
+        int[] units = geometry.cellUnits;
+        int used = 0;
+        for (int k = geometry.cellUnitStart[i * N + j], end = geometry.cellUnitStart[i * N + j + 1]; k < end; k++)
+            used |= unitMask[units[k]];
+        return used;
+    }
+
+    // The rule broken by a repeated value in a unit of the given kind
+    private static int ruleOf(int kind) {
+        switch (kind) {
+            case Geometry.ROW:
+                return ROW_RULE;
+            case Geometry.COLUMN:
+                return COLUMN_RULE;
+            case Geometry.BOX:
+                return BOX_RULE;
+            default:
+                return DIAGONAL_RULE;
+        }
     }
 
     /**
      * Checks the validity of a Sudoku puzzle by examining the rules.
      * - All numbers in the puzzle must be integers within the range [-N, N], where N is the size of the puzzle.
      * - Each row and column must not contain the same number more than once.
-     * - Each sqrt(N) x sqrt(N) subgrid must not contain the same number more than once.
+     * - Each box (and each extra unit of a variant, e.g. a diagonal) must not contain the same number more than once.
      * Returns true if the Sudoku puzzle is valid, false otherwise.
      */
     public boolean checkValidity() {
-        // Open the input file using the default constructor
-        In fin =  null;
-        //  Check if the file exists
-        try {
-            fin = new In(filename);
-        }catch (IllegalArgumentException e){
-            System.out.print("File " + filename + " not found in the root directory");
-            System.exit(0);
-        }
-        //  Test if the fin object is null
+        long start = Metrics.start();
+        boolean valid = parseFile(new int[N][N]);
+        Metrics.CHECK_VALIDITY.stop(start);
+        return valid;
+    }
 
-        if(fin.isEmpty()){
-            System.out.println("File " + filename + " not found in the root directory ");
+    /**
+     * Parses the game file into a table with a single streaming pass and reports any problem found.
+     * Table The N x N array to fill with the first N*N values of the file.
+     * Returns true if the file holds a valid Sudoku puzzle, false otherwise.
+     */
+    private boolean parseFile(int[][] table) {
+        int status;
+        // Open the input file and check if it exists
+        try (BoardReader reader = new BoardReader(Paths.get(getGameFile()), geometry)) {
+            status = reader.readFile(table);
+        } catch (IOException | InvalidPathException e) {
+            out().print("File " + getGameFile() + " not found in the root directory");
             System.exit(0);
+            return false;
         }
-        // Initialize counters
-        int count = 0;
-        int limit = N * N;
-        // Read integers from the file
-        while (!fin.isEmpty()) {
-            int temp = 0;
-
-            // Attempt to read an integer from the file
-            try {
-                temp = fin.readInt();
-            } catch (InputMismatchException e) {
+
+        switch (status) {
+            case BoardReader.EMPTY_FILE:
+                out().println("File " + getGameFile() + " not found in the root directory ");
+                System.exit(0);
+                return false;
+            case BoardReader.NOT_INTEGER:
                 // Handle the case where a non-integer value is detected in the file
-                System.out.println("Not an integer value detected in the file");
+                out().println("Not an integer value detected in the file");
                 System.exit(0);
-            }
-
-            // Check if the number is within the valid range
-            if (temp > N || temp < -N) {
-                System.out.println("Error: Illegal number in the input file!");
                 return false;
-            }
-
-            // Increment the count of read values
-            count++;
-        }
-
-        // Check if the number of values in the file matches the expected limit
-        if (count < limit) {
-            System.out.println("Error: Missing values from the file!");
-            fin.close();
-            return false;
+            case BoardReader.ILLEGAL_NUMBER:
+                out().println("Error: Illegal number in the input file!");
+                return false;
+            case BoardReader.MISSING_VALUES:
+                out().println("Error: Missing values from the file!");
+                return false;
+            default:
+                // The reader reports rules with the precedence of findViolation, so the table is not scanned again
+                return !reportViolation(status);
         }
-
-        // Close the file after reading the first time
-        fin.close();
-
-        // Open the input file again for reading the Sudoku values
-        In fin2 = new In(filename);
-
-        // Create a 2D array to store Sudoku values
-        int[][] temp = new int[N][N];
-
-        // Read Sudoku values from the file into the 2D array
-        for (int i = 0; i < N; i++)
-            for (int j = 0; j < N; j++) {
-                temp[i][j] = fin2.readInt();
-            }
-
-        // Close the file after reading the Sudoku values
-        fin2.close();
-
-        return !sudokuIsValid(temp);
     }
 
     /**
@@ -175,126 +300,150 @@ public class Board {
      * Returns true if the Sudoku puzzle is valid, false otherwise.
      */
     public boolean sudokuIsValid(int[][] table) {
-        // Arrays to check the validity of rows and columns
+        return reportViolation(findViolation(table));
+    }
 
-        // Check the validity of rows and columns
+    // Prints the error message of a rule found by findViolation; returns true if a rule is broken
+    private boolean reportViolation(int rule) {
+        switch (rule) {
+            case ROW_RULE:
+                out().println("Error: This is not a valid Sudoku! Same row rule not met!");
+                return true;
+            case COLUMN_RULE:
+                out().println("Error: This is not a valid Sudoku! Same column rule not met!");
+                return true;
+            case BOX_RULE:
+                out().println("Error: This is not a valid Sudoku! Same box rule not met!");
+                return true; // Duplicate found
+            case DIAGONAL_RULE:
+                out().println("Error: This is not a valid Sudoku! Same diagonal rule not met!");
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Finds the first Sudoku rule broken by a table, without printing anything.
+     * Rows and columns are checked before boxes, and boxes before the extra units of a variant,
+     * in the same order as sudokuIsValid reports them.
+     * Table 2D array representing the Sudoku puzzle.
+     * Returns VALID, ROW_RULE, COLUMN_RULE, BOX_RULE or DIAGONAL_RULE.
+     */
+    public int findViolation(int[][] table) {
+        // Check the validity of rows and columns using one bitmask per row and column
         for (int i = 0; i < N; i++) {
-            int[] repeatCheckRow = new int[N];
-            int[] repeatCheckCol = new int[N];
+            int seenRow = 0, repeatRow = 0;
+            int seenCol = 0, repeatCol = 0;
 
             for (int j = 0; j < N; j++) {
                 if (table[i][j] != 0) {
-                    repeatCheckRow[Math.abs(table[i][j]) - 1]++;
+                    int bit = 1 << (Math.abs(table[i][j]) - 1);
+                    repeatRow |= seenRow & bit;
+                    seenRow |= bit;
                 }
 
                 if (table[j][i] != 0) {
-                    repeatCheckCol[Math.abs(table[j][i]) - 1]++;
+                    int bit = 1 << (Math.abs(table[j][i]) - 1);
+                    repeatCol |= seenCol & bit;
+                    seenCol |= bit;
                 }
             }
 
-            // Check if the same number appears more than once in a row
-            for (int k = 0; k < N; k++) {
-                if (repeatCheckRow[k] > 1) {
-                    System.out.println("Error: This is not a valid Sudoku! Same row rule not met!");
-                    return true;
-                }
+            // Check if the same number appears more than once in a row or column (the smallest number is reported first)
+            if (repeatRow != 0 && (repeatCol == 0 || Integer.lowestOneBit(repeatRow) <= Integer.lowestOneBit(repeatCol)))
+                return ROW_RULE;
 
-                if (repeatCheckCol[k] > 1) {
-                    System.out.println("Error: This is not a valid Sudoku! Same column rule not met!");
-                    return true;
-                }
-            }
+            if (repeatCol != 0)
+                return COLUMN_RULE;
         }
-        int subgridSize = (int) Math.sqrt(N);
-
-        for (int startRow = 0; startRow < N; startRow += subgridSize) {
-            for (int startCol = 0; startCol < N; startCol += subgridSize) {
-                int[] repeatCheck = new int[N];
-
-                for (int i = startRow; i < startRow + subgridSize; i++) {
-                    for (int j = startCol; j < startCol + subgridSize; j++) {
-                        int value = Math.abs(table[i][j]);
-
-                        if (value != 0) {
-                            if (repeatCheck[value - 1] > 0) {
-                                System.out.println("Error: This is not a valid Sudoku! Same box rule not met!");
-                                return true; // Duplicate found
-                            }
-                            repeatCheck[value - 1]++;
-                        }
-                    }
+
+        // Check the boxes and any extra units through the cell tables of the geometry
+        int[] cells = geometry.unitCells;
+        for (int u = 2 * N; u < geometry.unitCount; u++) {
+            int seen = 0;
+
+            for (int k = u * N, end = k + N; k < end; k++) {
+                int value = Math.abs(table[cells[k] / N][cells[k] % N]);
+
+                if (value != 0) {
+                    int bit = 1 << (value - 1);
+                    if ((seen & bit) != 0)
+                        return ruleOf(geometry.kindOf(u)); // Duplicate found
+                    seen |= bit;
                 }
             }
         }
-        return false;
+        return VALID;
     }
 
     /**
-     * Creates a copy of the current Sudoku board.
-     * returns A copy of the Sudoku board.
+     * Checks if a move is valid in the Sudoku board.
+     * i The row index of the move.
+     * j The column index of the move.
+     * val The value to be placed in the cell.
+     * returns true if the move is valid, false otherwise.
+     * The checks are single lookups per unit in the bitmasks maintained by updateBoard.
      */
-    private int[][] getTable() {
-        int[][] temp = new int[N][N];
-        for (int i = 0; i < temp.length; i++) {
-            System.arraycopy(tableau[i], 0, temp[i], 0, temp.length);
+    public boolean isValidMove(int i, int j, int val) {
+        long start = Metrics.start();
+        try {
+            return reportMove(checkMove(i, j, val));
+        } finally {
+            Metrics.IS_VALID_MOVE.stop(start);
+        }
+    }
+
+    // Prints the error message of a rule found by checkMove; returns true for a valid move
+    private boolean reportMove(int rule) {
+        switch (rule) {
+            case CELL_OCCUPIED:
+                out().println("Error: cell is already occupied!");
+                return false;
+            case ROW_RULE:
+                out().println("Error: Illegal value insertion! Same row rule not met!");
+                return false;
+            case COLUMN_RULE:
+                out().println("Error: Illegal value insertion! Same column rule not met!");
+                return false;
+            case BOX_RULE:
+                out().println("Error: Illegal value insertion! Same box rule not met!");
+                return false;
+            case DIAGONAL_RULE:
+                out().println("Error: Illegal value insertion! Same diagonal rule not met!");
+                return false;
+            default:
+                return true; // Valid move
         }
-        return temp;
     }
 
     /**
-     * Checks if a move is valid in the Sudoku board.
+     * Checks a move like isValidMove, without printing anything.
      * i The row index of the move.
      * j The column index of the move.
-     * val The value to be placed in the cell.
-     * returns true if the move is valid, false otherwise.
+     * val The value to be placed in the cell, or 0 to clear it.
+     * returns VALID, CELL_OCCUPIED, ROW_RULE, COLUMN_RULE, BOX_RULE or DIAGONAL_RULE.
      */
-    public boolean isValidMove(int i, int j, int val) {
-        // Check if the cell is empty
-        int[][] temp = getTable();
+    public int checkMove(int i, int j, int val) {
+        int cell = tableau[i - 1][j - 1];
         //Check if the cell has a negative value
-        if(tableau[i - 1][j - 1]<0){
-            System.out.println("Error: cell is already occupied!");
-            return false;}
-        if (tableau[i - 1][j - 1] == 0) {
-            // Check the row for duplicates
+        if (cell < 0)
+            return CELL_OCCUPIED;
+        if (cell == 0) {
             if (val == 0)
-                return true;
-            temp[i - 1][j - 1] = val;//
-            for (int x = 0; x < N; x++) {
-                if (Math.abs(temp[i - 1][x]) == val && x != j - 1) {
-                    System.out.println("Error: Illegal value insertion! Same row rule not met!");
-                    return false;
-                }
-            }
+                return VALID;
+            int bit = 1 << (val - 1);
 
-            // Check the column for duplicates
-            for (int x = 0; x < N; x++) {
-                if (Math.abs(temp[x][j - 1]) == val && x != i - 1) {
-                    System.out.println("Error: Illegal value insertion! Same column rule not met!");
-                    return false;
-                }
-            }
+            // Check the units of the cell for duplicates: row, column, box, then any variant units
+            int[] units = geometry.cellUnits;
+            int c = (i - 1) * N + j - 1;
+            for (int k = geometry.cellUnitStart[c], end = geometry.cellUnitStart[c + 1]; k < end; k++)
+                if ((unitMask[units[k]] & bit) != 0)
+                    return ruleOf(geometry.kindOf(units[k]));
 
-            // Check the subgrid for duplicates
-            int subgridSize = (int) Math.sqrt(N);
-            int startRow = (i - 1) / subgridSize * subgridSize;
-            int startCol = (j - 1) / subgridSize * subgridSize;
-
-            for (int x = startRow; x < startRow + subgridSize; x++) {
-                for (int y = startCol; y < startCol + subgridSize; y++) {
-                    if (Math.abs(temp[x][y]) == val && x != i - 1 && y != j - 1) {
-                        System.out.println("Error: Illegal value insertion! Same box rule not met!");
-                        return false;
-                    }
-                }
-            }
-
-            return true; // Valid move
+            return VALID;
         } else {
-            if (tableau[i - 1][j - 1] != 0 && val != 0) {
-                System.out.println("Error: cell is already occupied!");
-                return false;
-            } else return true;
+            return val != 0 ? CELL_OCCUPIED : VALID;
         }
     }
 
@@ -303,17 +452,145 @@ public class Board {
      * i The row index of the move.
      * j The column index of the move.
      * val The value to be placed in the cell.
+     * Keeps the unit bitmasks in sync with the tableau.
      */
     public void updateBoard(int i, int j, int val) {
-        tableau[i - 1][j - 1] = val;
+        long start = Metrics.start();
+        int old = tableau[i - 1][j - 1];
+        setCell(i - 1, j - 1, val);
+        if (journal != null)
+            journal.record((i - 1) * N + j - 1, old, val, tableau);
+        if (autosave != null)
+            autosave.append((i - 1) * N + j - 1, old, val);
+        Metrics.UPDATE_BOARD.stop(start);
+    }
+
+    // Writes a value into the 0-based cell (i, j) and moves its bit in the masks
+    private void setCell(int i, int j, int val) {
+        int old = tableau[i][j];
+        if (old != 0)
+            removeValue(i, j, Math.abs(old));
+        if (val != 0)
+            addValue(i, j, Math.abs(val));
+        tableau[i][j] = val;
+        if (candidateEngine != null)
+            candidateEngine.cellChanged(i, j);
+    }
+
+    /**
+     * Returns the values that can be placed in cell (i, j) without breaking a rule, as a bitmask
+     * with bit v-1 set for value v; 0 if the cell is not empty. One mask lookup per unit, nothing is printed.
+     * i The row index of the cell.
+     * j The column index of the cell.
+     */
+    public int allowedValues(int i, int j) {
+        if (tableau[i - 1][j - 1] != 0)
+            return 0;
+        return ((1 << N) - 1) & ~usedValues(i - 1, j - 1);
+    }
+
+    /**
+     * Returns the engine that keeps the pencil marks of this board, creating it on first use.
+     */
+    public CandidateEngine getCandidateEngine() {
+        if (candidateEngine == null)
+            candidateEngine = new CandidateEngine(this);
+        return candidateEngine;
+    }
+
+    /**
+     * Starts recording the moves made through updateBoard, so they can be undone and redone.
+     */
+    public void startJournal() {
+        journal = new MoveJournal(tableau);
+    }
+
+    /**
+     * Loads the board from the journal saved next to the game file, instead of reading the game file.
+     * The state is rebuilt from the nearest snapshot, and the moves stay available for undo and redo.
+     * returns true if a journal was loaded, false if there is none or it is out of date.
+     */
+    public boolean loadJournal() {
+        MoveJournal loaded;
+        try {
+            loaded = MoveJournal.load(Paths.get(getGameFile()), N);
+        } catch (InvalidPathException e) {
+            return false;
+        }
+        if (loaded == null)
+            return false;
+        loaded.restore(tableau);
+        rebuildMasks();
+        journal = loaded;
+        return true;
+    }
+
+    public MoveJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Sets the autosave that every later change of a cell is logged to, or null to stop logging.
+     */
+    public void setAutosave(Autosave autosave) {
+        this.autosave = autosave;
+    }
+
+    /**
+     * Takes back the last move recorded in the journal.
+     * returns true if a move was undone, false if there is none.
+     */
+    public boolean undo() {
+        if (journal == null || !journal.canUndo())
+            return false;
+        int entry = journal.undo();
+        int cell = MoveJournal.cell(entry);
+        setCell(cell / N, cell % N, MoveJournal.oldValue(entry));
+        if (autosave != null)
+            autosave.append(cell, MoveJournal.newValue(entry), MoveJournal.oldValue(entry));
+        return true;
+    }
+
+    /**
+     * Repeats the last move taken back by undo.
+     * returns true if a move was redone, false if there is none.
+     */
+    public boolean redo() {
+        if (journal == null || !journal.canRedo())
+            return false;
+        int entry = journal.redo();
+        int cell = MoveJournal.cell(entry);
+        setCell(cell / N, cell % N, MoveJournal.newValue(entry));
+        if (autosave != null)
+            autosave.append(cell, MoveJournal.oldValue(entry), MoveJournal.newValue(entry));
+        return true;
     }
 
     /**
      * Saves the current state of the board to an output file.
      */
     public void saveBoard() {
-        String filePath = "out-" + filename;
+        long start = Metrics.start();
+        String filePath = "out-" + getGameFile();
 
+        writeBoard(filePath);
+        if (journal != null) {
+            try {
+                journal.save(Paths.get(filePath));
+            } catch (IOException | InvalidPathException e) {
+                out().println("Error: could not save the move journal of " + filePath);
+            }
+        }
+        out().println("Saving game to " + filePath);
+        out().println("bye!");
+        Metrics.SAVE_BOARD.stop(start);
+    }
+
+    /**
+     * Writes the tableau to a text file in the format read by readBoard, one row per line.
+     * filePath The file to write.
+     */
+    public void writeBoard(String filePath) {
         Out fout = new Out(filePath);
 
         // Write Sudoku values to the output file
@@ -325,19 +602,38 @@ public class Board {
         }
 
         fout.close();
-        System.out.println("Saving game to " + filePath);
-        System.out.println("bye!");
     }
 
     /**
      * Checks if the Sudoku board is fully filled.
      * returns true if the Sudoku board is fully filled, false otherwise.
+     * The count of empty cells is kept by updateBoard and rebuildMasks, so no cell is scanned.
      */
     public boolean checkIfSudokuIsFinished() {
-        for (int i = 0; i < N; i++)
-            for (int j = 0; j < N; j++)
-                if (tableau[i][j] == 0)
-                    return false;
-        return true;
+        return emptyCells == 0;
+    }
+
+    /**
+     * Checks if the Sudoku board is fully filled and breaks no rule.
+     * returns true if the puzzle is solved, false otherwise.
+     */
+    public boolean checkIfSudokuIsSolved() {
+        return emptyCells == 0 && conflicts == 0;
+    }
+
+    /**
+     * Returns the number of empty cells.
+     */
+    public int emptyCellCount() {
+        return emptyCells;
+    }
+
+    /**
+     * Returns the number of rule conflicts: for every unit, the copies of each value beyond the first.
+     * A board reached only through valid moves has none; boards filled through updateBoard without
+     * isValidMove, e.g. by bots, may have some.
+     */
+    public int conflictCount() {
+        return conflicts;
     }
 }
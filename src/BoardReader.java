@@ -0,0 +1,343 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The BoardReader class parses Sudoku boards in a single pass over a memory-mapped file.
+ * The file is mapped in fixed-size windows, so corpora larger than 2 GB are read without
+ * copying them into the heap. Two layouts are supported:
+ * - one board per file, as N*N whitespace-separated integers (the Board.readBoard format);
+ * - one board per line, either as N*N characters ('.' or '0' for empty cells, 1-9 for givens)
+ *   or as N*N whitespace-separated integers.
+ * Values are range-checked and the Sudoku rules are checked while the board is parsed; a broken rule
+ * is reported as Board.findViolation would report it for the same board.
+ */
+public class BoardReader implements Closeable {
+    // Status codes; the rule codes are the ones returned by Board.findViolation, the others follow them
+    public static final int END_OF_INPUT = -1;
+    public static final int OK = Board.VALID;
+    public static final int ROW_RULE = Board.ROW_RULE;
+    public static final int COLUMN_RULE = Board.COLUMN_RULE;
+    public static final int BOX_RULE = Board.BOX_RULE;
+    public static final int DIAGONAL_RULE = Board.DIAGONAL_RULE;
+    public static final int NOT_INTEGER = 6;
+    public static final int ILLEGAL_NUMBER = 7;
+    public static final int MISSING_VALUES = 8;
+    public static final int TOO_MANY_VALUES = 9;
+    public static final int EMPTY_FILE = 10;
+
+    // Size of the mapped windows
+    private static final long WINDOW = 64L << 20;
+
+    // The size of the Sudoku boards and the units their rules apply to
+    private final int N;
+    private final Geometry geometry;
+
+    private final FileChannel channel;
+    private final long fileSize;
+
+    // The current window and the file offset it starts at
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    // One byte of look-ahead, or -1 at the end of the file
+    private int peek;
+
+    // Masks of the values in every unit and of the values repeated in it, used to check the rules while a board is parsed
+    private final int[] unitMask;
+    private final int[] unitRepeat;
+    private boolean repeated;
+
+    // Number of boards returned by next so far
+    private long boards;
+
+    /**
+     * Constructor to open a file of boards of size N.
+     * path The file to read.
+     * N The size of the Sudoku boards.
+     * Throws IOException if the file cannot be opened.
+     */
+    public BoardReader(Path path, int N) throws IOException {
+        this(path, Geometry.standard(N));
+    }
+
+    /**
+     * Constructor to open a file of boards of the given geometry, whose rules are checked while parsing.
+     * path The file to read.
+     * geometry The units of the boards.
+     * Throws IOException if the file cannot be opened.
+     */
+    public BoardReader(Path path, Geometry geometry) throws IOException {
+        this.N = geometry.N;
+        this.geometry = geometry;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.unitMask = new int[geometry.unitCount];
+        this.unitRepeat = new int[geometry.unitCount];
+        this.windowStart = 0;
+        map(0);
+        this.peek = nextByte();
+    }
+
+    /**
+     * Reads a whole file as one board, the way Board.readBoard expects it.
+     * The first N*N integers fill dest; any further values are still checked to be integers in [-N, N].
+     * dest The N x N array to fill.
+     * returns OK, a rule code, NOT_INTEGER, ILLEGAL_NUMBER, MISSING_VALUES or EMPTY_FILE.
+     */
+    public int readFile(int[][] dest) throws IOException {
+        resetRules();
+        int count = 0;
+        int limit = N * N;
+        skipWhitespace();
+        if (peek < 0)
+            return EMPTY_FILE;
+        while (peek >= 0) {
+            long value = readInteger();
+            if (value == Long.MIN_VALUE)
+                return NOT_INTEGER;
+            if (value > N || value < -N)
+                return ILLEGAL_NUMBER;
+            if (count < limit)
+                store(dest, count, (int) value);
+            count++;
+            skipWhitespace();
+        }
+        if (count < limit)
+            return MISSING_VALUES;
+        return violation();
+    }
+
+    /**
+     * Reads the next board from a file with one board per line; blank lines are skipped.
+     * A malformed line is consumed up to its end, so reading continues with the next board.
+     * dest The N x N array to fill.
+     * returns OK, a rule code, a format error code, or END_OF_INPUT when the file is exhausted.
+     */
+    public int next(int[][] dest) throws IOException {
+        resetRules();
+        skipWhitespace();
+        if (peek < 0)
+            return END_OF_INPUT;
+        boards++;
+
+        int limit = N * N;
+        int count = 0;
+        int status = OK;
+        while (peek >= 0 && peek != '\n') {
+            if (peek == ' ' || peek == '\t' || peek == '\r') {
+                peek = nextByte();
+                continue;
+            }
+            if (status != OK) {
+                peek = nextByte();
+                continue;
+            }
+            if (count == 0 && isCharacterCell(peek) && N <= 9) {
+                // Parse a token that may be a whole board of characters or the first integer
+                int length = 0;
+                long value = 0;
+                boolean characters = true;
+                boolean digits = true;
+                while (peek >= 0 && peek > ' ') {
+                    if (length < limit && isCharacterCell(peek) && peek - '0' <= N)
+                        dest[length / N][length % N] = peek == '.' ? 0 : -(peek - '0');
+                    else
+                        characters = false;
+                    if (peek >= '0' && peek <= '9' && length < 10)
+                        value = value * 10 + (peek - '0');
+                    else
+                        digits = false;
+                    length++;
+                    peek = nextByte();
+                }
+                if (characters && length == limit) {
+                    for (int k = 0; k < limit; k++)
+                        checkRules(k, dest[k / N][k % N]);
+                    count = limit;
+                } else if (digits && length < 10 && value <= N) {
+                    store(dest, 0, (int) value);
+                    count = 1;
+                } else {
+                    status = digits ? ILLEGAL_NUMBER : NOT_INTEGER;
+                }
+                continue;
+            }
+            long value = readInteger();
+            if (value == Long.MIN_VALUE)
+                status = NOT_INTEGER;
+            else if (value > N || value < -N)
+                status = ILLEGAL_NUMBER;
+            else if (count == limit)
+                status = TOO_MANY_VALUES;
+            else
+                store(dest, count++, (int) value);
+        }
+        if (status != OK)
+            return status;
+        if (count < limit)
+            return MISSING_VALUES;
+        return violation();
+    }
+
+    /**
+     * Returns the number of boards returned by next so far, including malformed ones.
+     */
+    public long getBoardCount() {
+        return boards;
+    }
+
+    /**
+     * Returns a short description of a status code.
+     */
+    public static String describe(int status) {
+        switch (status) {
+            case OK:
+                return "valid";
+            case ROW_RULE:
+                return "invalid row";
+            case COLUMN_RULE:
+                return "invalid column";
+            case BOX_RULE:
+                return "invalid box";
+            case DIAGONAL_RULE:
+                return "invalid diagonal";
+            case NOT_INTEGER:
+                return "not an integer";
+            case ILLEGAL_NUMBER:
+                return "illegal number";
+            case MISSING_VALUES:
+                return "missing values";
+            case TOO_MANY_VALUES:
+                return "too many values";
+            case EMPTY_FILE:
+                return "empty file";
+            default:
+                return "end of input";
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static boolean isCharacterCell(int b) {
+        return b == '.' || (b >= '0' && b <= '9');
+    }
+
+    // Stores the k-th value of a board and checks it against the rules
+    private void store(int[][] dest, int k, int value) {
+        dest[k / N][k % N] = value;
+        checkRules(k, value);
+    }
+
+    private void resetRules() {
+        if (repeated)
+            Arrays.fill(unitRepeat, 0);
+        Arrays.fill(unitMask, 0);
+        repeated = false;
+    }
+
+    // Records the values the k-th cell of the board repeats in its units
+    private void checkRules(int k, int value) {
+        if (value == 0)
+            return;
+        int bit = 1 << (Math.abs(value) - 1);
+        int[] units = geometry.cellUnits;
+        for (int u = geometry.cellUnitStart[k], end = geometry.cellUnitStart[k + 1]; u < end; u++) {
+            int unit = units[u];
+            if ((unitMask[unit] & bit) != 0) {
+                unitRepeat[unit] |= bit;
+                repeated = true;
+            }
+            unitMask[unit] |= bit;
+        }
+    }
+
+    // The rule broken by the whole board, with the precedence of Board.findViolation: row i and column i
+    // together for each i, the one repeating the smaller value first, then boxes and extra units in unit order
+    private int violation() {
+        if (!repeated)
+            return OK;
+        for (int i = 0; i < N; i++) {
+            int row = unitRepeat[i], column = unitRepeat[N + i];
+            if (row != 0 && (column == 0 || Integer.lowestOneBit(row) <= Integer.lowestOneBit(column)))
+                return ROW_RULE;
+            if (column != 0)
+                return COLUMN_RULE;
+        }
+        for (int u = 2 * N; u < geometry.unitCount; u++)
+            if (unitRepeat[u] != 0)
+                return ruleOf(geometry.kindOf(u));
+        return OK;
+    }
+
+    private static int ruleOf(int kind) {
+        switch (kind) {
+            case Geometry.ROW:
+                return ROW_RULE;
+            case Geometry.COLUMN:
+                return COLUMN_RULE;
+            case Geometry.BOX:
+                return BOX_RULE;
+            default:
+                return DIAGONAL_RULE;
+        }
+    }
+
+    /**
+     * Reads an optionally signed decimal integer token.
+     * returns the value, or Long.MIN_VALUE if the token is not an int.
+     */
+    private long readInteger() throws IOException {
+        boolean negative = false;
+        if (peek == '-' || peek == '+') {
+            negative = peek == '-';
+            peek = nextByte();
+        }
+        long value = 0;
+        int digits = 0;
+        boolean valid = true;
+        while (peek > ' ') {
+            if (peek < '0' || peek > '9' || digits > 10)
+                valid = false;
+            else
+                value = value * 10 + (peek - '0');
+            digits++;
+            peek = nextByte();
+        }
+        if (!valid || digits == 0)
+            return Long.MIN_VALUE;
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE || value < Integer.MIN_VALUE)
+            return Long.MIN_VALUE;
+        return value;
+    }
+
+    // Skips spaces, tabs and line breaks
+    private void skipWhitespace() throws IOException {
+        while (peek >= 0 && peek <= ' ')
+            peek = nextByte();
+    }
+
+    // Returns the next byte of the file, or -1 at its end
+    private int nextByte() throws IOException {
+        if (!window.hasRemaining()) {
+            long next = windowStart + window.capacity();
+            if (next >= fileSize)
+                return -1;
+            map(next);
+        }
+        return window.get() & 0xFF;
+    }
+
+    private void map(long start) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, fileSize - start));
+    }
+}
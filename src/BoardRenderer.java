@@ -0,0 +1,280 @@
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The BoardRenderer class draws a Sudoku board in the layout of Board.displayBoard.
+ * The whole frame is built in one reusable buffer from precomputed cell glyphs and written with a single
+ * call, instead of one print per character. Cells are as wide as the largest value, so boards with N > 9
+ * stay aligned; boards with N <= 9 are drawn exactly as before.
+ * In diff mode the first frame is drawn at the top of the terminal and kept there with an ANSI scroll
+ * region; later calls only re-emit the cells that changed, using ANSI cursor positioning.
+ * An instance is not thread-safe.
+ */
+public class BoardRenderer {
+    private static final byte ESC = 27;
+
+    // The size of the Sudoku board and the height and width of its boxes
+    private final int N;
+    private final int boxRows;
+    private final int boxColumns;
+
+    // Width of a cell: the digits of N plus the padding and parentheses around them
+    private final int cellWidth;
+
+    // Cell glyphs for every value from -N to N, indexed by value + N
+    private final byte[][] glyphs;
+
+    // One horizontal separator line and the platform line separator
+    private final byte[] border;
+    private final byte[] newline;
+
+    // Reused output buffer, large enough for a full frame or a diff of every cell
+    private final byte[] buffer;
+
+    // 1-based terminal row of every board row and terminal column of every board column
+    private final int[] screenRow;
+    private final int[] screenColumn;
+
+    // Number of lines in a full frame
+    private final int frameLines;
+
+    // Diff mode state: the values currently on screen, valid once a frame has been drawn
+    private boolean diffMode;
+    private boolean drawn;
+    private final int[][] shown;
+
+    /**
+     * Constructor to create a renderer for boards of size N.
+     * N The size of the Sudoku board.
+     */
+    public BoardRenderer(int N) {
+        this(N, Geometry.standard(N).boxRows, Geometry.standard(N).boxColumns);
+    }
+
+    /**
+     * Constructor to create a renderer for boards of size N with boxes of boxRows x boxColumns cells.
+     * Boards whose regions are not rectangles pass N for both, so only the outer frame is drawn.
+     */
+    public BoardRenderer(int N, int boxRows, int boxColumns) {
+        this.N = N;
+        this.boxRows = boxRows;
+        this.boxColumns = boxColumns;
+        int digits = Integer.toString(N).length();
+        this.cellWidth = digits + 4;
+
+        glyphs = new byte[2 * N + 1][];
+        for (int v = -N; v <= N; v++)
+            glyphs[v + N] = glyph(v, digits);
+
+        int bands = N / boxRows, stacks = N / boxColumns;
+        StringBuilder line = new StringBuilder();
+        for (int k = 0; k < stacks; k++) {
+            line.append('+');
+            for (int j = 0; j < boxColumns * cellWidth + 1; j++)
+                line.append('-');
+        }
+        line.append('+');
+        border = line.toString().getBytes(StandardCharsets.US_ASCII);
+        newline = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+        screenRow = new int[N];
+        screenColumn = new int[N];
+        for (int i = 0; i < N; i++) {
+            screenRow[i] = 2 + i + i / boxRows;
+            screenColumn[i] = 3 + i * cellWidth + (i / boxColumns) * 2;
+        }
+        frameLines = N + bands + 1;
+
+        int rowLength = 2 + N * cellWidth + 2 * (stacks - 1) + 1;
+        int frameSize = (bands + 1) * (border.length + newline.length) + N * (rowLength + newline.length);
+        // A diff writes at most every cell, each behind a cursor move of ESC[rrr;cccH
+        int diffSize = N * N * (cellWidth + 10) + 4;
+        buffer = new byte[Math.max(frameSize + 32, diffSize)];
+        shown = new int[N][N];
+    }
+
+    /**
+     * Builds the glyph of a cell: " (v) " for a given, "  v  " for a user entry and "  .  " when empty.
+     * Values are right-aligned to the given number of digits.
+     */
+    private static byte[] glyph(int v, int digits) {
+        String number = v == 0 ? "." : Integer.toString(Math.abs(v));
+        StringBuilder cell = new StringBuilder();
+        for (int k = number.length(); k < digits; k++)
+            cell.append(' ');
+        if (v < 0)
+            cell.append(" (").append(number).append(") ");
+        else
+            cell.append("  ").append(number).append("  ");
+        return cell.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Turns diff mode on or off. Turning it on redraws the full frame on the next call to display.
+     */
+    public void setDiffMode(boolean diffMode) {
+        this.diffMode = diffMode;
+        this.drawn = false;
+    }
+
+    public boolean isDiffMode() {
+        return diffMode;
+    }
+
+    /**
+     * Draws the board: the full frame, or in diff mode only the cells changed since the last call.
+     * tableau The N x N values to draw.
+     * out The stream the frame is written to.
+     */
+    public void display(int[][] tableau, PrintStream out) {
+        int length;
+        if (!diffMode)
+            length = renderFrame(tableau, 0);
+        else if (!drawn)
+            length = renderFirstFrame(tableau);
+        else
+            length = renderDiff(tableau);
+        if (length > 0) {
+            out.write(buffer, 0, length);
+            out.flush();
+        }
+    }
+
+    /**
+     * Builds the full frame of a board at buffer[pos].
+     * returns the position after the frame.
+     */
+    private int renderFrame(int[][] tableau, int pos) {
+        byte[] buf = buffer;
+        for (int i = 0; i < N; i++) {
+            // Horizontal lines separate the bands of subgrids
+            if (i % boxRows == 0)
+                pos = line(border, pos);
+
+            buf[pos++] = '|';
+            buf[pos++] = ' ';
+            int[] row = tableau[i];
+            for (int j = 0; j < N; j++) {
+                byte[] cell = glyphs[row[j] + N];
+                System.arraycopy(cell, 0, buf, pos, cell.length);
+                pos += cell.length;
+
+                // Vertical lines separate the subgrids
+                if ((j + 1) % boxColumns == 0 && j != N - 1) {
+                    buf[pos++] = '|';
+                    buf[pos++] = ' ';
+                }
+            }
+            buf[pos++] = '|';
+            System.arraycopy(newline, 0, buf, pos, newline.length);
+            pos += newline.length;
+        }
+        return line(border, pos);
+    }
+
+    /**
+     * Clears the terminal, draws the frame at the top and limits scrolling to the lines below it.
+     */
+    private int renderFirstFrame(int[][] tableau) {
+        int pos = escape(0, 'H');
+        pos = escape(pos, 2, 'J');
+        pos = renderFrame(tableau, pos);
+        // Scroll region from the line after the frame to the bottom; this homes the cursor, so move it back
+        pos = escape(pos, frameLines + 1, 'r');
+        pos = cursor(pos, frameLines + 1, 1);
+        for (int i = 0; i < N; i++)
+            System.arraycopy(tableau[i], 0, shown[i], 0, N);
+        drawn = true;
+        return pos;
+    }
+
+    /**
+     * Re-emits only the changed cells, saving and restoring the cursor around them.
+     * returns the number of bytes to write, 0 if nothing changed.
+     */
+    private int renderDiff(int[][] tableau) {
+        int pos = 0;
+        buffer[pos++] = ESC;
+        buffer[pos++] = '7';
+        boolean changed = false;
+        for (int i = 0; i < N; i++) {
+            int[] row = tableau[i];
+            int[] old = shown[i];
+            for (int j = 0; j < N; j++) {
+                if (row[j] == old[j])
+                    continue;
+                old[j] = row[j];
+                changed = true;
+                pos = cursor(pos, screenRow[i], screenColumn[j]);
+                byte[] cell = glyphs[row[j] + N];
+                System.arraycopy(cell, 0, buffer, pos, cell.length);
+                pos += cell.length;
+            }
+        }
+        if (!changed)
+            return 0;
+        buffer[pos++] = ESC;
+        buffer[pos++] = '8';
+        return pos;
+    }
+
+    /**
+     * Releases the scroll region set by diff mode, leaving the cursor where it is.
+     * out The stream the frames were written to.
+     */
+    public void reset(PrintStream out) {
+        if (!drawn)
+            return;
+        int pos = 0;
+        buffer[pos++] = ESC;
+        buffer[pos++] = '7';
+        pos = escape(pos, 'r');
+        buffer[pos++] = ESC;
+        buffer[pos++] = '8';
+        out.write(buffer, 0, pos);
+        out.flush();
+        drawn = false;
+    }
+
+    private int line(byte[] line, int pos) {
+        System.arraycopy(line, 0, buffer, pos, line.length);
+        pos += line.length;
+        System.arraycopy(newline, 0, buffer, pos, newline.length);
+        return pos + newline.length;
+    }
+
+    // ANSI control sequences: ESC [ final, ESC [ n final and ESC [ row ; column H
+    private int escape(int pos, char command) {
+        buffer[pos++] = ESC;
+        buffer[pos++] = '[';
+        buffer[pos++] = (byte) command;
+        return pos;
+    }
+
+    private int escape(int pos, int n, char command) {
+        buffer[pos++] = ESC;
+        buffer[pos++] = '[';
+        pos = number(pos, n);
+        buffer[pos++] = (byte) command;
+        return pos;
+    }
+
+    private int cursor(int pos, int row, int column) {
+        buffer[pos++] = ESC;
+        buffer[pos++] = '[';
+        pos = number(pos, row);
+        buffer[pos++] = ';';
+        pos = number(pos, column);
+        buffer[pos++] = 'H';
+        return pos;
+    }
+
+    private int number(int pos, int n) {
+        if (n >= 100)
+            buffer[pos++] = (byte) ('0' + n / 100);
+        if (n >= 10)
+            buffer[pos++] = (byte) ('0' + n / 10 % 10);
+        buffer[pos++] = (byte) ('0' + n % 10);
+        return pos;
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * The BoardView class is a read-only view of a Board for a BotStrategy.
+ * A strategy can inspect the cells, ask which moves the rules allow and ask for a hint, but every
+ * change goes through the move it returns, so it is checked like a move typed by a player.
+ * Rows, columns and values are numbered from 1, as in Board.
+ */
+public final class BoardView {
+    private final Board board;
+
+    /**
+     * Constructor to view a board; only the harness that owns the board creates views.
+     * board The board to view.
+     */
+    BoardView(Board board) {
+        this.board = board;
+    }
+
+    /**
+     * Returns the size N of the board.
+     */
+    public int size() {
+        return board.N;
+    }
+
+    /**
+     * Returns the units of the board, e.g. to find the peers of a cell.
+     */
+    public Geometry geometry() {
+        return board.geometry;
+    }
+
+    /**
+     * Returns the value of cell (i, j) in the readBoard encoding: negative for a given, 0 when empty.
+     * i The row index of the cell.
+     * j The column index of the cell.
+     */
+    public int get(int i, int j) {
+        return board.tableau[i - 1][j - 1];
+    }
+
+    /**
+     * Checks if cell (i, j) holds a given, which can never be changed.
+     */
+    public boolean isGiven(int i, int j) {
+        return board.tableau[i - 1][j - 1] < 0;
+    }
+
+    /**
+     * Returns the values that can be placed in cell (i, j), as a bitmask with bit v-1 set for value v;
+     * 0 if the cell is not empty.
+     */
+    public int allowedValues(int i, int j) {
+        return board.allowedValues(i, j);
+    }
+
+    /**
+     * Checks a move without making it.
+     * returns Board.VALID, CELL_OCCUPIED, ROW_RULE, COLUMN_RULE, BOX_RULE or DIAGONAL_RULE.
+     */
+    public int checkMove(int i, int j, int val) {
+        return board.checkMove(i, j, val);
+    }
+
+    /**
+     * Returns the number of empty cells.
+     */
+    public int emptyCellCount() {
+        return board.emptyCellCount();
+    }
+
+    /**
+     * Returns the number of repeated values in the units of the board, 0 unless the game file broke a rule.
+     */
+    public int conflictCount() {
+        return board.conflictCount();
+    }
+
+    /**
+     * Checks if every cell of the board is filled.
+     */
+    public boolean isFinished() {
+        return board.checkIfSudokuIsFinished();
+    }
+
+    /**
+     * Returns the simplest deduction available, as the hint command of the game does.
+     * The first call attaches a CandidateEngine to the board, which then keeps its pencil marks.
+     * returns the hint, or null if no technique of CandidateEngine applies.
+     */
+    public CandidateEngine.Hint hint() {
+        return board.getCandidateEngine().nextHint();
+    }
+}
@@ -0,0 +1,238 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The BotHarness class plays many games of Sudoku with bots and measures the game engine under them.
+ * Every game gets its own copy of a puzzle, a BotStrategy and a ReplayEngine, which applies the moves
+ * of the bot with the rules of an interactive game; games share nothing but their statistics and run
+ * as tasks on a fixed thread pool. The strategies are run one after another on the same puzzles and
+ * compared by games and moves per second, completion, rejections per rule and the latency of their decisions.
+ */
+public class BotHarness {
+    // Moves per cell after which a game is abandoned, e.g. a random bot that never finishes
+    private static final int MOVES_PER_CELL = 20;
+
+    // Generated puzzles are played in turn by the games
+    private static final int GENERATED_PUZZLES = 64;
+
+    // Rules in the order they are reported
+    private static final int[] RULES = {Board.CELL_OCCUPIED, Board.ROW_RULE, Board.COLUMN_RULE, Board.BOX_RULE, Board.DIAGONAL_RULE};
+    private static final String[] RULE_NAMES = {"occupied", "row", "column", "box", "diagonal"};
+
+    private final String strategy;
+    private final Board[] puzzles;
+    private final int moveLimit;
+
+    // Totals of all games, added once per game
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder outOfRange = new LongAdder();
+    private final LongAdder[] rejected = new LongAdder[RULES.length];
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder gaveUp = new LongAdder();
+
+    // Time spent in BotStrategy.nextMove per move
+    private final Metrics.Histogram decisions = new Metrics.Histogram();
+
+    /**
+     * Constructor to play one strategy.
+     * strategy The name of the strategy, as accepted by BotStrategy.forName.
+     * puzzles The puzzles; game k plays a copy of puzzles[k % puzzles.length].
+     */
+    public BotHarness(String strategy, Board[] puzzles) {
+        this.strategy = strategy;
+        this.puzzles = puzzles;
+        this.moveLimit = MOVES_PER_CELL * puzzles[0].N * puzzles[0].N;
+        for (int r = 0; r < RULES.length; r++)
+            rejected[r] = new LongAdder();
+    }
+
+    /**
+     * Plays the games and waits for all of them to finish.
+     * executor The executor the games run on.
+     * games The number of games.
+     * seed The seed from which every game derives the randomness of its bot.
+     */
+    public void run(ExecutorService executor, int games, long seed) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(games);
+        SplittableRandom root = new SplittableRandom(seed);
+        for (int k = 0; k < games; k++) {
+            Board puzzle = puzzles[k % puzzles.length];
+            BotStrategy bot = BotStrategy.forName(strategy, root.split());
+            executor.execute(() -> {
+                try {
+                    play(puzzle, bot);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    /**
+     * Plays one game until it is completed, the bot gives up or the move limit is reached.
+     */
+    private void play(Board puzzle, BotStrategy bot) {
+        Board b = new Board(puzzle.geometry);
+        b.copyFrom(puzzle);
+        BoardView view = new BoardView(b);
+        ReplayEngine engine = new ReplayEngine(b);
+
+        int result = b.checkIfSudokuIsFinished() ? ReplayEngine.COMPLETED : ReplayEngine.ACCEPTED;
+        int played = 0;
+        while (result != ReplayEngine.COMPLETED && played < moveLimit) {
+            long start = System.nanoTime();
+            UserChoice move = bot.nextMove(view);
+            decisions.record(System.nanoTime() - start);
+            if (move == null) {
+                gaveUp.increment();
+                break;
+            }
+            played++;
+            result = engine.apply(move.getRow(), move.getColumn(), move.isClear() ? 0 : move.getValue());
+            // A bot cannot save the game; 0,0=0 ends it like giving up
+            if (result == ReplayEngine.SAVE) {
+                gaveUp.increment();
+                break;
+            }
+        }
+
+        moves.add(played);
+        accepted.add(engine.getAccepted());
+        outOfRange.add(engine.getOutOfRange());
+        for (int r = 0; r < RULES.length; r++)
+            rejected[r].add(engine.getRejected(RULES[r]));
+        if (engine.isCompleted())
+            completed.increment();
+    }
+
+    /**
+     * Prints the throughput, the outcome of the games, the rejection rates and the decision latency.
+     * games The number of games played.
+     * seconds The wall-clock time of the run.
+     */
+    public void printSummary(int games, double seconds) {
+        long total = moves.sum();
+        long gaveUp = this.gaveUp.sum();
+        long completed = this.completed.sum();
+        System.out.printf("%s: %d games in %.3f s (%.0f games/s), %d moves (%.0f moves/s)%n",
+                strategy, games, seconds, games / seconds, total, total / seconds);
+        System.out.printf("  %d completed, %d gave up, %d over the move limit%n",
+                completed, gaveUp, games - completed - gaveUp);
+
+        StringBuilder sb = new StringBuilder();
+        long rejectedMoves = 0;
+        for (int r = 0; r < RULES.length; r++) {
+            long n = rejected[r].sum();
+            rejectedMoves += n;
+            sb.append(r == 0 ? "" : ", ").append(RULE_NAMES[r]).append(' ').append(String.format("%.1f%%", percent(n, total)));
+        }
+        System.out.printf("  accepted %.1f%%, rejected %.1f%% (%s), out of range %.1f%%%n",
+                percent(accepted.sum(), total), percent(rejectedMoves, total), sb, percent(outOfRange.sum(), total));
+        System.out.printf("  Decision latency (us): p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+                decisions.getP50Micros(), decisions.getP90Micros(), decisions.getP99Micros(), decisions.getMaxMicros());
+    }
+
+    private static double percent(long n, long total) {
+        return total == 0 ? 0 : 100.0 * n / total;
+    }
+
+    /**
+     * Generates puzzles with a fixed seed, so that every run plays the same ones.
+     */
+    private static Board[] generate(Geometry geometry, PuzzleGenerator.Difficulty difficulty, int count) {
+        PuzzleGenerator generator = new PuzzleGenerator(geometry.N, new SplittableRandom(2024));
+        Board[] puzzles = new Board[count];
+        for (int k = 0; k < count; k++) {
+            puzzles[k] = new Board(geometry);
+            int[][] grid = generator.generate(difficulty);
+            for (int i = 0; i < geometry.N; i++)
+                System.arraycopy(grid[i], 0, puzzles[k].tableau[i], 0, geometry.N);
+            puzzles[k].rebuildMasks();
+        }
+        return puzzles;
+    }
+
+    /**
+     * The main method to let bots play a game file or generated puzzles.
+     * Usage: java BotHarness <N> <games> <game-file|generate:easy|medium|hard> [strategies] [threads]
+     * strategies is a comma-separated list of random, greedy, hint and solver; all of them by default.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 3 || args.length > 5) {
+            System.out.println("Please give N, the number of games, a <game-file> or generate:<difficulty> and optional strategies and threads");
+            return;
+        }
+        int N, games;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String[] strategies = (args.length > 3 ? args[3] : "random,greedy,hint,solver").split(",");
+        try {
+            N = Integer.parseInt(args[0]);
+            games = Integer.parseInt(args[1]);
+            if (args.length > 4)
+                threads = Integer.parseInt(args[4]);
+            if (games < 1 || threads < 1)
+                throw new NumberFormatException();
+        } catch (NumberFormatException e) {
+            System.out.println("Please give N, the number of games, a <game-file> or generate:<difficulty> and optional strategies and threads");
+            return;
+        }
+        if (N != 4 && N != 6 && N != 8 && N != 9 && N != 12 && N != 16 && N != 25) {
+            System.out.println("The allowed value for N is 4, 6, 8, 9, 12, 16 or 25!");
+            return;
+        }
+        Geometry geometry = Geometry.forName(System.getProperty("sudoku.variant", "standard"), N);
+        if (geometry == null) {
+            System.out.println("Unknown variant " + System.getProperty("sudoku.variant") + "! Please choose standard or diagonal.");
+            return;
+        }
+        for (String name : strategies) {
+            if (BotStrategy.forName(name, new SplittableRandom()) == null) {
+                System.out.println("Unknown strategy " + name + "! Please choose random, greedy, hint or solver.");
+                return;
+            }
+        }
+
+        Board[] puzzles;
+        if (args[2].startsWith("generate:")) {
+            PuzzleGenerator.Difficulty difficulty;
+            try {
+                difficulty = PuzzleGenerator.Difficulty.valueOf(args[2].substring("generate:".length()).toUpperCase());
+            } catch (IllegalArgumentException e) {
+                System.out.println("Please choose generate:easy, generate:medium or generate:hard");
+                return;
+            }
+            if (!geometry.isStandard() || geometry.boxRows != geometry.boxColumns) {
+                System.out.println("Puzzles can only be generated for standard boards with N = 4, 9, 16 or 25!");
+                return;
+            }
+            try {
+                puzzles = generate(geometry, difficulty, Math.min(games, GENERATED_PUZZLES));
+            } catch (IllegalArgumentException e) {
+                System.out.println("Error: " + e.getMessage());
+                return;
+            }
+        } else {
+            // Read and validated once; every game plays a copy
+            Board puzzle = new Board(geometry);
+            puzzle.setGameFile(args[2]);
+            puzzle.readBoard();
+            puzzles = new Board[] {puzzle};
+        }
+
+        System.out.printf("%d games of %s per strategy on %d threads%n", games, args[2], threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (String name : strategies) {
+            BotHarness harness = new BotHarness(name, puzzles);
+            long start = System.nanoTime();
+            harness.run(executor, games, 2024);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            harness.printSummary(games, seconds);
+        }
+        executor.shutdown();
+    }
+}
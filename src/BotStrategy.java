@@ -0,0 +1,206 @@
+import java.util.SplittableRandom;
+
+/**
+ * The BotStrategy interface represents a player for BotHarness.
+ * A strategy sees the board through a read-only BoardView and answers every turn with a move, which
+ * the harness checks with the rules of the game like a typed command. A strategy plays one game at a
+ * time and keeps its state between turns, so the harness creates one per game.
+ */
+public interface BotStrategy {
+
+    /**
+     * Creates a strategy by name.
+     * name "random", "greedy", "hint" or "solver".
+     * random The source of randomness of the game; the same seed plays the same moves.
+     * returns the strategy, or null if the name is unknown.
+     */
+    static BotStrategy forName(String name, SplittableRandom random) {
+        switch (name) {
+            case "random":
+                return new Random(random);
+            case "greedy":
+                return new Greedy(random);
+            case "hint":
+                return new Hinted(random);
+            case "solver":
+                return new Solving(random);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Chooses the next move; a value of 0 clears the cell.
+     * board The current board.
+     * returns the move, which may be reused by the next call, or null to give up the game.
+     */
+    UserChoice nextMove(BoardView board);
+
+    /**
+     * Plays any cell and any value, including moves the rules reject; a baseline for rejection rates.
+     */
+    final class Random implements BotStrategy {
+        private final SplittableRandom random;
+        private final UserChoice choice = new UserChoice();
+
+        Random(SplittableRandom random) {
+            this.random = random;
+        }
+
+        @Override
+        public UserChoice nextMove(BoardView board) {
+            int N = board.size();
+            int val = random.nextInt(N + 1);
+            choice.set(1 + random.nextInt(N), 1 + random.nextInt(N), val, val == 0);
+            return choice;
+        }
+    }
+
+    /**
+     * Fills the empty cell with the fewest allowed values with one of them at random.
+     * At a dead end, an empty cell that allows nothing, it clears a filled peer of that cell.
+     */
+    class Greedy implements BotStrategy {
+        final SplittableRandom random;
+        final UserChoice choice = new UserChoice();
+
+        Greedy(SplittableRandom random) {
+            this.random = random;
+        }
+
+        @Override
+        public UserChoice nextMove(BoardView board) {
+            int N = board.size();
+            int cells = N * N;
+
+            // Most constrained empty cell; the scan starts at a random cell to break ties
+            int best = -1, bestCount = N + 1;
+            int first = random.nextInt(cells);
+            for (int k = 0; k < cells && bestCount > 1; k++) {
+                int cell = (first + k) % cells;
+                if (board.get(cell / N + 1, cell % N + 1) != 0)
+                    continue;
+                int count = Integer.bitCount(board.allowedValues(cell / N + 1, cell % N + 1));
+                if (count < bestCount) {
+                    best = cell;
+                    bestCount = count;
+                }
+            }
+            if (best < 0)
+                return null;
+            if (bestCount == 0)
+                return backtrack(board, best);
+
+            int allowed = board.allowedValues(best / N + 1, best % N + 1);
+            for (int skip = random.nextInt(bestCount); skip > 0; skip--)
+                allowed &= allowed - 1;
+            int val = Integer.numberOfTrailingZeros(allowed) + 1;
+            choice.set(best / N + 1, best % N + 1, val, false);
+            return choice;
+        }
+
+        // Clears a random peer of the dead-end cell that the bot filled; gives up if all of them are givens
+        private UserChoice backtrack(BoardView board, int cell) {
+            int N = board.size();
+            Geometry geometry = board.geometry();
+            int from = geometry.peerStart[cell], count = geometry.peerStart[cell + 1] - from;
+            int first = random.nextInt(count);
+            for (int k = 0; k < count; k++) {
+                int peer = geometry.peers[from + (first + k) % count];
+                if (board.get(peer / N + 1, peer % N + 1) > 0) {
+                    choice.set(peer / N + 1, peer % N + 1, 0, true);
+                    return choice;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Places the naked and hidden singles found by the hint command, and plays like Greedy when there are none.
+     */
+    final class Hinted extends Greedy {
+        Hinted(SplittableRandom random) {
+            super(random);
+        }
+
+        @Override
+        public UserChoice nextMove(BoardView board) {
+            CandidateEngine.Hint hint = board.hint();
+            if (hint == null || hint.kind == CandidateEngine.POINTING)
+                return super.nextMove(board);
+            choice.set(hint.row, hint.column, hint.value, false);
+            return choice;
+        }
+    }
+
+    /**
+     * Solves the board once with BitboardSolver, then plays the solution cell by cell.
+     * Boards the solvers do not support are played like Greedy.
+     */
+    final class Solving extends Greedy {
+        // One solver per worker thread, since a solver is expensive to create and not thread-safe
+        private static final ThreadLocal<BitboardSolver[]> SOLVERS = ThreadLocal.withInitial(() -> new BitboardSolver[26]);
+
+        private int[][] solution;
+
+        // Cells before these are known to hold no wrong entry, and no empty cell
+        private int wrong, next;
+
+        Solving(SplittableRandom random) {
+            super(random);
+        }
+
+        @Override
+        public UserChoice nextMove(BoardView board) {
+            Geometry geometry = board.geometry();
+            if (!geometry.isStandard() || geometry.boxRows != geometry.boxColumns)
+                return super.nextMove(board);
+            int N = board.size();
+            if (solution == null && !solve(board))
+                return null;
+
+            // Wrong entries of the game file go first, so that no entry blocks a value of the solution
+            for (; wrong < N * N; wrong++) {
+                int i = wrong / N + 1, j = wrong % N + 1;
+                if (board.get(i, j) > 0 && board.get(i, j) != solution[i - 1][j - 1]) {
+                    choice.set(i, j, 0, true);
+                    return choice;
+                }
+            }
+            for (; next < N * N; next++) {
+                int i = next / N + 1, j = next % N + 1;
+                if (board.get(i, j) == 0) {
+                    choice.set(i, j, solution[i - 1][j - 1], false);
+                    return choice;
+                }
+            }
+            return null;
+        }
+
+        // Solves the board as it is, or its givens alone if the entries of the game file lead nowhere
+        private boolean solve(BoardView board) {
+            int N = board.size();
+            BitboardSolver[] solvers = SOLVERS.get();
+            if (solvers[N] == null)
+                solvers[N] = new BitboardSolver(N);
+            BitboardSolver solver = solvers[N];
+            solution = new int[N][N];
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = 0; i < N; i++)
+                    for (int j = 0; j < N; j++) {
+                        int value = board.get(i + 1, j + 1);
+                        solution[i][j] = pass == 0 || value < 0 ? value : 0;
+                    }
+                if (solver.solve(solution))
+                    break;
+                if (pass == 1)
+                    return false;
+            }
+            for (int[] row : solution)
+                for (int j = 0; j < N; j++)
+                    row[j] = Math.abs(row[j]);
+            return true;
+        }
+    }
+}
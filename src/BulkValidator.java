@@ -0,0 +1,353 @@
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The BulkValidator class checks the Sudoku rules of many boards at once, e.g. a corpus loaded into a
+ * PackedBoard arena. Boards are checked in blocks: a block is transposed so that every cell holds one
+ * value per board, every cell is turned into a value bit, and then every unit ORs the bits of its cells
+ * and collects those seen twice, for all boards of the block together.
+ * When VectorValidator (compiled from vector/src) is on the class path and the JVM runs with
+ * --add-modules jdk.incubator.vector, the block is as wide as the preferred vector and the check runs
+ * there; otherwise, or with -Dsudoku.vector=false, a scalar kernel with the same structure runs on
+ * blocks of 16 boards. Nothing is printed: every board gets a bit in a result bitset,
+ * set when it is valid, and a code with one flag per broken rule.
+ * An instance is not thread-safe; use one per thread.
+ */
+public class BulkValidator {
+    // Failure flags of a board; ROW to DIAGONAL follow the Geometry unit kinds
+    public static final int ROW_FAILED = 1 << Geometry.ROW;
+    public static final int COLUMN_FAILED = 1 << Geometry.COLUMN;
+    public static final int BOX_FAILED = 1 << Geometry.BOX;
+    public static final int DIAGONAL_FAILED = 1 << Geometry.DIAGONAL;
+    public static final int RANGE_FAILED = 1 << 4;
+
+    // The Vector API kernel, or null when it is not available or turned off
+    private static final Kernel VECTOR = Boolean.parseBoolean(System.getProperty("sudoku.vector", "true")) ? vectorKernel() : null;
+
+    // Number of boards in a block of the scalar kernel
+    private static final int SCALAR_LANES = 16;
+
+    // Number of 9x9 boards loaded into one arena by main; larger boards use proportionally smaller arenas
+    private static final int CHUNK = 1 << 16;
+
+    // Number of boards a task of main handles without splitting further; a multiple of 64 so tasks own whole bitset words
+    private static final int GRAIN = 1024;
+
+    // The units of the boards and their size
+    private final Geometry geometry;
+    private final int N;
+    private final int cells;
+
+    // Boards per block, the transposed block and the failure flags of the block
+    private final int lanes;
+    private final int[] soa;
+    private final int[] codes;
+
+    // Kernel scratch: the value bit of every cell, the values repeated in a unit of every kind,
+    // and for the scalar kernel the values used in the current unit and the illegal numbers
+    private final int[] cellBits;
+    private final int[] repeated;
+    private final int[] used;
+    private final int[] range;
+
+    /**
+     * Constructor to create a validator for boards of the given geometry.
+     */
+    public BulkValidator(Geometry geometry) {
+        this.geometry = geometry;
+        this.N = geometry.N;
+        this.cells = geometry.cells;
+        this.lanes = VECTOR != null ? VECTOR.lanes() : SCALAR_LANES;
+        this.soa = new int[cells * lanes];
+        this.codes = new int[lanes];
+        this.cellBits = new int[cells * lanes];
+        this.repeated = new int[4 * lanes];
+        this.used = new int[lanes];
+        this.range = new int[lanes];
+    }
+
+    // The kernel is compiled apart from the game, and the incubator module is only resolved when the JVM
+    // is started with --add-modules jdk.incubator.vector, so it is looked up by name
+    private static Kernel vectorKernel() {
+        try {
+            return (Kernel) Class.forName("VectorValidator").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns a description of the kernel in use, e.g. for reports.
+     */
+    public static String kernel() {
+        return VECTOR != null ? VECTOR.name() : "scalar";
+    }
+
+    /**
+     * Checks boards [from, to) of a PackedBoard arena.
+     * arena The arena holding the boards; its view position is not used.
+     * valid Receives bit k set when board k is valid, cleared otherwise.
+     * failures Receives in failures[k] the failure flags of board k, 0 when it is valid.
+     * returns the number of valid boards in the range.
+     */
+    public int validate(PackedBoard arena, int from, int to, long[] valid, byte[] failures) {
+        byte[] data = arena.array();
+        int size = PackedBoard.recordSize(N);
+        int count = 0;
+        for (int first = from; first < to; first += lanes) {
+            int n = Math.min(lanes, to - first);
+            for (int l = 0; l < n; l++)
+                for (int c = 0, base = (first + l) * size; c < cells; c++)
+                    soa[c * lanes + l] = data[base + c];
+            count += check(n, first, valid, failures);
+        }
+        return count;
+    }
+
+    /**
+     * Checks boards [from, to) of an array of tables in the Board.readBoard encoding.
+     * grids The boards, e.g. a chunk parsed by BoardReader.
+     * valid Receives bit k set when board k is valid, cleared otherwise.
+     * failures Receives in failures[k] the failure flags of board k, 0 when it is valid.
+     * returns the number of valid boards in the range.
+     */
+    public int validate(int[][][] grids, int from, int to, long[] valid, byte[] failures) {
+        int count = 0;
+        for (int first = from; first < to; first += lanes) {
+            int n = Math.min(lanes, to - first);
+            for (int l = 0; l < n; l++) {
+                int[][] grid = grids[first + l];
+                for (int c = 0; c < cells; c++)
+                    soa[c * lanes + l] = Math.abs(grid[c / N][c % N]);
+            }
+            count += check(n, first, valid, failures);
+        }
+        return count;
+    }
+
+    // Checks the first n boards of the transposed block and stores their results at index first
+    private int check(int n, int first, long[] valid, byte[] failures) {
+        // Lanes past the end of the input hold empty boards, whose results are dropped
+        for (int l = n; l < lanes; l++)
+            for (int c = 0; c < cells; c++)
+                soa[c * lanes + l] = 0;
+        if (VECTOR != null)
+            VECTOR.check(geometry, soa, cellBits, repeated, codes);
+        else
+            checkScalar();
+
+        int count = 0;
+        for (int l = 0; l < n; l++) {
+            int k = first + l;
+            failures[k] = (byte) codes[l];
+            if (codes[l] == 0) {
+                valid[k >>> 6] |= 1L << k;
+                count++;
+            } else {
+                valid[k >>> 6] &= ~(1L << k);
+            }
+        }
+        return count;
+    }
+
+    // The scalar kernel: the same steps as the vector kernel, one lane at a time
+    private void checkScalar() {
+        int[] unitCells = geometry.unitCells;
+        Arrays.fill(range, 0);
+        for (int c = 0; c < cells; c++) {
+            for (int l = 0, m = c * lanes; l < lanes; l++, m++) {
+                int v = soa[m];
+                boolean bad = v > N || v < 0;
+                range[l] |= bad ? 1 : 0;
+                cellBits[m] = v == 0 || bad ? 0 : 1 << (v - 1);
+            }
+        }
+
+        Arrays.fill(repeated, 0);
+        for (int u = 0; u < geometry.unitCount; u++) {
+            Arrays.fill(used, 0);
+            int kind = geometry.unitKind[u] * lanes;
+            for (int m = u * N, end = m + N; m < end; m++) {
+                int base = unitCells[m] * lanes;
+                for (int l = 0; l < lanes; l++) {
+                    int bits = cellBits[base + l];
+                    repeated[kind + l] |= used[l] & bits;
+                    used[l] |= bits;
+                }
+            }
+        }
+
+        for (int l = 0; l < lanes; l++) {
+            int code = range[l] != 0 ? RANGE_FAILED : 0;
+            for (int kind = Geometry.ROW; kind <= Geometry.DIAGONAL; kind++)
+                if (repeated[kind * lanes + l] != 0)
+                    code |= 1 << kind;
+            codes[l] = code;
+        }
+    }
+
+    /**
+     * Returns the names of the rules in a failure code, e.g. "row, box", or "valid".
+     */
+    public static String describe(int code) {
+        if (code == 0)
+            return "valid";
+        StringBuilder sb = new StringBuilder();
+        String[] names = {"row", "column", "box", "diagonal", "illegal number"};
+        for (int flag = 0; flag < names.length; flag++)
+            if ((code & (1 << flag)) != 0)
+                sb.append(sb.length() > 0 ? ", " : "").append(names[flag]);
+        return sb.toString();
+    }
+
+    /**
+     * A kernel that checks a block of boards at once; VectorValidator implements it with the Vector API.
+     */
+    interface Kernel {
+        // Number of boards in a block
+        int lanes();
+
+        // A description of the kernel for reports
+        String name();
+
+        /**
+         * Checks a block of lanes() boards.
+         * geometry The units of the boards.
+         * soa The absolute value of cell c of board l at soa[c * lanes() + l].
+         * cellBits Scratch for the value bit of every cell, cells * lanes() ints.
+         * repeated Scratch for the values repeated in a unit of every kind, 4 * lanes() ints.
+         * codes Receives the failure flags of every board, 0 when it is valid.
+         */
+        void check(Geometry geometry, int[] soa, int[] cellBits, int[] repeated, int[] codes);
+    }
+
+    /**
+     * A range of boards of one arena, split in halves until it is small enough to run directly.
+     */
+    private static class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ThreadLocal<BulkValidator> validators;
+        private final PackedBoard arena;
+        private final long[] valid;
+        private final byte[] failures;
+        private final int from;
+        private final int to;
+
+        Range(ThreadLocal<BulkValidator> validators, PackedBoard arena, long[] valid, byte[] failures, int from, int to) {
+            this.validators = validators;
+            this.arena = arena;
+            this.valid = valid;
+            this.failures = failures;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                // Split on a multiple of 64 so that no two tasks write the same word of the bitset
+                int mid = ((from + to) >>> 1) & ~63;
+                invokeAll(new Range(validators, arena, valid, failures, from, mid),
+                        new Range(validators, arena, valid, failures, mid, to));
+                return;
+            }
+            validators.get().validate(arena, from, to, valid, failures);
+        }
+    }
+
+    /**
+     * The main method to validate a corpus from the command line.
+     * The whole corpus is loaded into PackedBoard arenas first, so the timing covers only the validation.
+     * Usage: java [--add-modules jdk.incubator.vector] BulkValidator <N> <corpus-file>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Please give the dimension N and a <corpus-file>");
+            return;
+        }
+        int N;
+        try {
+            N = Integer.parseInt(args[0]);
+            if (N != 4 && N != 6 && N != 8 && N != 9 && N != 12 && N != 16 && N != 25) {
+                System.out.println("The allowed value for N is 4, 6, 8, 9, 12, 16 or 25!");
+                return;
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Please give the dimension N and a <corpus-file>");
+            return;
+        }
+        Geometry geometry = Geometry.forName(System.getProperty("sudoku.variant", "standard"), N);
+        if (geometry == null) {
+            System.out.println("Unknown variant " + System.getProperty("sudoku.variant") + "! Please choose standard or diagonal.");
+            return;
+        }
+
+        // Load every well-formed board; rule violations are kept, since finding them is the point
+        int chunk = Math.max(1024, CHUNK * 81 / (N * N));
+        List<PackedBoard> arenas = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        long unreadable = 0;
+        int[][] grid = new int[N][N];
+        try (BoardReader reader = new BoardReader(Paths.get(args[1]), geometry)) {
+            PackedBoard arena = null;
+            int count = chunk;
+            int status;
+            while ((status = reader.next(grid)) != BoardReader.END_OF_INPUT) {
+                if (status != BoardReader.OK && status != BoardReader.ROW_RULE && status != BoardReader.COLUMN_RULE
+                        && status != BoardReader.BOX_RULE && status != BoardReader.DIAGONAL_RULE) {
+                    unreadable++;
+                    continue;
+                }
+                if (count == chunk) {
+                    arena = PackedBoard.arena(N, chunk);
+                    arenas.add(arena);
+                    sizes.add(0);
+                    count = 0;
+                }
+                arena.at(count++).load(grid);
+                sizes.set(sizes.size() - 1, count);
+            }
+        } catch (NoSuchFileException e) {
+            System.out.println("File " + args[1] + " not found");
+            return;
+        }
+
+        ThreadLocal<BulkValidator> validators = ThreadLocal.withInitial(() -> new BulkValidator(geometry));
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        long[] perFlag = new long[5];
+        long total = 0, valid = 0;
+        long[] bitset = new long[(chunk + 63) / 64];
+        byte[] failures = new byte[chunk];
+        long start = System.nanoTime();
+        for (int a = 0; a < arenas.size(); a++) {
+            int count = sizes.get(a);
+            pool.invoke(new Range(validators, arenas.get(a), bitset, failures, 0, count));
+            for (int k = 0; k < count; k++)
+                if (failures[k] == 0)
+                    valid++;
+            for (int k = 0; k < count; k++)
+                for (int flag = 0; flag < perFlag.length; flag++)
+                    if ((failures[k] & (1 << flag)) != 0)
+                        perFlag[flag]++;
+            total += count;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+
+        System.out.printf("%d boards in %.3f s (%.0f boards/s, %.0f MB/s) on %d threads, %s kernel%n", total, seconds,
+                total / seconds, total * PackedBoard.recordSize(N) / seconds / 1e6, pool.getParallelism(), kernel());
+        System.out.println("Valid boards: " + valid);
+        for (int flag = 0; flag < perFlag.length; flag++)
+            if (perFlag[flag] > 0)
+                System.out.println("  Boards failing the " + describe(1 << flag) + " check: " + perFlag[flag]);
+        if (unreadable > 0)
+            System.out.println("Malformed lines skipped: " + unreadable);
+    }
+}
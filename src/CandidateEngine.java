@@ -0,0 +1,231 @@
+import java.util.Arrays;
+
+/**
+ * The CandidateEngine class keeps the pencil marks of a Board: for every empty cell, the set of values
+ * that do not break a rule, as a bitmask with bit v-1 set for value v.
+ * The marks are updated incrementally: when Board.updateBoard changes a cell, only that cell and its
+ * peers (the cells sharing a unit with it) are recomputed from the board's masks. The units and peers
+ * come from the board's Geometry, so variants and rectangular boxes are handled alike.
+ * nextHint finds a naked single, a hidden single or a pointing pair/triple with bit operations over
+ * the marks, without trying moves or printing anything. The marks a pointing hint removes are kept
+ * removed, so the next hint builds on it instead of repeating it.
+ */
+public class CandidateEngine {
+    // Kinds of hints, in the order nextHint looks for them
+    public static final int NAKED_SINGLE = 0;
+    public static final int HIDDEN_SINGLE = 1;
+    public static final int POINTING = 2;
+
+    /**
+     * A hint about the next move. Rows, columns, boxes and values are numbered from 1.
+     * For a single, value can be placed at (row, column). For a pointing hint, value is confined to one
+     * row (or column) of a subgrid, so it can be removed from the other cells of that row (or column).
+     */
+    public static class Hint {
+        public final int kind;
+        public final int row;
+        public final int column;
+        public final int value;
+
+        // For a hidden single: the kind of unit (Geometry.ROW, COLUMN, BOX or DIAGONAL) the value has one place in
+        public final int unitKind;
+
+        // For a pointing hint: the box, whether the value is confined to a row, and how many marks it removes
+        public final int box;
+        public final boolean inRow;
+        public final int eliminations;
+
+        Hint(int kind, int row, int column, int value, int unitKind, int box, boolean inRow, int eliminations) {
+            this.kind = kind;
+            this.row = row;
+            this.column = column;
+            this.value = value;
+            this.unitKind = unitKind;
+            this.box = box;
+            this.inRow = inRow;
+            this.eliminations = eliminations;
+        }
+
+        @Override
+        public String toString() {
+            switch (kind) {
+                case NAKED_SINGLE:
+                    return "Hint: cell (" + row + "," + column + ") can only be " + value + ".";
+                case HIDDEN_SINGLE:
+                    return "Hint: " + value + " has only one place left in its " + unitName(unitKind) + ": cell ("
+                            + row + "," + column + ").";
+                default:
+                    String line = inRow ? "row " + row : "column " + column;
+                    return "Hint: in box " + box + ", " + value + " can only be in " + line + ", so " + value
+                            + " can be removed from " + eliminations + " other cell(s) of " + line + ".";
+            }
+        }
+
+        // Jigsaw regions are units of kind BOX, so they are named like boxes
+        private static String unitName(int unitKind) {
+            switch (unitKind) {
+                case Geometry.ROW:
+                    return "row";
+                case Geometry.COLUMN:
+                    return "column";
+                case Geometry.DIAGONAL:
+                    return "diagonal";
+                default:
+                    return "box";
+            }
+        }
+    }
+
+    private final Board board;
+    private final int N;
+
+    // The units and peer tables of the board
+    private final Geometry geometry;
+
+    // Pencil marks of every cell in row-major order; 0 for filled cells
+    private final int[] candidates;
+
+    // Marks removed by pointing hints, which the masks of the board cannot tell; dropped when a cell is cleared
+    private final int[] eliminated;
+    private boolean anyEliminated;
+
+    /**
+     * Constructor to track the pencil marks of a board.
+     * board The board; Board.getCandidateEngine attaches the engine so it sees every update.
+     */
+    public CandidateEngine(Board board) {
+        this.board = board;
+        this.N = board.N;
+        this.geometry = board.geometry;
+        this.candidates = new int[N * N];
+        this.eliminated = new int[N * N];
+        refresh();
+    }
+
+    /**
+     * Recomputes the marks of every cell; needed when the tableau was filled without updateBoard.
+     * The marks removed by earlier pointing hints are restored.
+     */
+    public void refresh() {
+        Arrays.fill(eliminated, 0);
+        anyEliminated = false;
+        for (int cell = 0; cell < N * N; cell++)
+            candidates[cell] = board.allowedValues(cell / N + 1, cell % N + 1);
+    }
+
+    /**
+     * Updates the marks after the 0-based cell (i, j) changed: the cell and its peers.
+     */
+    void cellChanged(int i, int j) {
+        // Clearing a cell adds marks, which may undo the reason for a pointing elimination anywhere
+        if (anyEliminated && board.tableau[i][j] == 0) {
+            refresh();
+            return;
+        }
+        int cell = i * N + j;
+        candidates[cell] = board.allowedValues(i + 1, j + 1) & ~eliminated[cell];
+        int[] peers = geometry.peers;
+        for (int k = geometry.peerStart[cell], end = geometry.peerStart[cell + 1]; k < end; k++)
+            candidates[peers[k]] = board.allowedValues(peers[k] / N + 1, peers[k] % N + 1) & ~eliminated[peers[k]];
+    }
+
+    /**
+     * Returns the pencil marks of cell (i, j): bit v-1 is set if v can be placed there, 0 if the cell is filled.
+     * i The row index of the cell.
+     * j The column index of the cell.
+     */
+    public int getCandidates(int i, int j) {
+        return candidates[(i - 1) * N + j - 1];
+    }
+
+    /**
+     * Finds the simplest deduction available: a naked single, then a hidden single, then a pointing pair/triple.
+     * A pointing hint is applied to the marks when it is found, since removing marks is not a move.
+     * returns the hint, or null if none of these techniques applies.
+     */
+    public Hint nextHint() {
+        // Naked single: an empty cell with exactly one mark
+        for (int cell = 0; cell < N * N; cell++) {
+            int marks = candidates[cell];
+            if (marks != 0 && (marks & (marks - 1)) == 0)
+                return single(NAKED_SINGLE, cell, marks, -1);
+        }
+
+        // Hidden single: a value marked in exactly one cell of a unit
+        int[] cells = geometry.unitCells;
+        for (int u = 0; u < geometry.unitCount; u++) {
+            int once = 0, twice = 0;
+            for (int k = u * N; k < u * N + N; k++) {
+                twice |= once & candidates[cells[k]];
+                once |= candidates[cells[k]];
+            }
+            int singles = once & ~twice;
+            if (singles != 0) {
+                int bit = Integer.lowestOneBit(singles);
+                for (int k = u * N; k < u * N + N; k++)
+                    if ((candidates[cells[k]] & bit) != 0)
+                        return single(HIDDEN_SINGLE, cells[k], bit, geometry.kindOf(u));
+            }
+        }
+
+        // Pointing: a value confined to one row or column of a box, also marked elsewhere in that line
+        for (int box = 0; box < N; box++) {
+            Hint hint = pointing(box, true);
+            if (hint == null)
+                hint = pointing(box, false);
+            if (hint != null)
+                return hint;
+        }
+        return null;
+    }
+
+    private Hint single(int kind, int cell, int bit, int unitKind) {
+        return new Hint(kind, cell / N + 1, cell % N + 1, Integer.numberOfTrailingZeros(bit) + 1, unitKind, 0, false, 0);
+    }
+
+    /**
+     * Looks for a value marked in only one row (inRow) or column of a box that is also marked in
+     * that line outside the box, and removes the value from the marks of those cells.
+     * Works for rectangular boxes and jigsaw regions alike.
+     */
+    private Hint pointing(int box, boolean inRow) {
+        int[] cells = geometry.unitCells;
+        int from = (2 * N + box) * N, to = from + N;
+        for (int k = from; k < to; k++) {
+            // Every line through the box is looked at once, from its first cell in the box
+            int line = inRow ? cells[k] / N : cells[k] % N;
+            boolean first = true;
+            for (int m = from; m < k && first; m++)
+                first = (inRow ? cells[m] / N : cells[m] % N) != line;
+            if (!first)
+                continue;
+
+            int inLine = 0, elsewhere = 0;
+            for (int m = from; m < to; m++) {
+                if ((inRow ? cells[m] / N : cells[m] % N) == line)
+                    inLine |= candidates[cells[m]];
+                else
+                    elsewhere |= candidates[cells[m]];
+            }
+            int confined = inLine & ~elsewhere;
+            for (int bits = confined; bits != 0; bits &= bits - 1) {
+                int bit = Integer.lowestOneBit(bits);
+                int eliminations = 0;
+                for (int p = 0; p < N; p++) {
+                    int cell = inRow ? line * N + p : p * N + line;
+                    if (geometry.boxOf(cell) != box && (candidates[cell] & bit) != 0) {
+                        candidates[cell] &= ~bit;
+                        eliminated[cell] |= bit;
+                        eliminations++;
+                    }
+                }
+                if (eliminations > 0) {
+                    anyEliminated = true;
+                    int value = Integer.numberOfTrailingZeros(bit) + 1;
+                    return new Hint(POINTING, cells[k] / N + 1, cells[k] % N + 1, value, Geometry.BOX, box + 1, inRow, eliminations);
+                }
+            }
+        }
+        return null;
+    }
+}
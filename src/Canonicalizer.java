@@ -0,0 +1,378 @@
+import java.util.Arrays;
+
+/**
+ * The Canonicalizer class maps every Sudoku grid to a canonical key that is the same for all grids that
+ * are the same puzzle under symmetry: digit relabeling, row permutations within a band, band swaps,
+ * column permutations within a stack, stack swaps and transposition.
+ * The key is the smallest grid (row-major, empty cells first) over a set of transformations chosen by
+ * structure alone: rows, columns, digits, bands and stacks are colored by a few rounds of refinement
+ * (how many givens, in which lines, of which digits), sorted by color, and only the orderings of equally
+ * colored ones are searched. Digits are relabeled 1, 2, ... in order of first appearance.
+ * Grids with too many equally colored lines (e.g. completely filled grids) are keyed without the
+ * permutations; such keys still match repeats and relabelings of the same grid.
+ * The transformation of the last key is kept, so a solution can be moved to and from canonical form.
+ * Only standard boards with square boxes are supported: with rectangular boxes bands and stacks differ in
+ * size, and the line swaps within a band do not keep the diagonals of a variant.
+ * A canonicalizer is not thread-safe; use one per thread.
+ */
+public class Canonicalizer {
+    // Most orderings of equally colored lines searched per orientation before falling back
+    private static final int MAX_ORDERINGS = 1 << 12;
+
+    // Rounds of color refinement
+    private static final int ROUNDS = 3;
+
+    // First character of a key: searched over all symmetries, or only relabeled
+    private static final char CANONICAL = 'C';
+    private static final char RELABELED = 'R';
+
+    // The size of the Sudoku boards and of their subgrids
+    private final int N;
+    private final int subgridSize;
+
+    // The grid in the orientation being searched, row-major, with values in [0, N]
+    private final int[] grid;
+
+    // Colors of rows, columns, digits (index 0 for empty cells), bands and stacks, and their next round
+    private long[] rowColor, colColor, digitColor, bandColor, stackColor;
+    private long[] nextRow, nextCol, nextDigit, nextBand, nextStack;
+
+    // Current ordering: bands and stacks by slot, and the lines of every band and stack by position
+    private final int[] bandOrder;
+    private final int[] stackOrder;
+    private final int[][] rowsOfBand;
+    private final int[][] colsOfStack;
+
+    // Ties to search: segment k is the range [segmentFrom[k], segmentTo[k]) of segmentArray[k]
+    private final int[][] segmentArray;
+    private final int[] segmentFrom;
+    private final int[] segmentTo;
+    private int segments;
+
+    // The candidate key being built and its row, column and digit mapping
+    private final char[] key;
+    private final int[] rowOrder;
+    private final int[] colOrder;
+    private final int[] label;
+    private int orientation;
+
+    // The smallest key found so far and its transformation: source row and column of every canonical
+    // line in that orientation, and the canonical label of every source digit
+    private final char[] best;
+    private boolean found;
+    private final int[] bestRowOrder;
+    private final int[] bestColOrder;
+    private final int[] bestLabel;
+    private final int[] inverseLabel;
+    private int bestOrientation;
+
+    /**
+     * Constructor to create a canonicalizer for standard boards of size N.
+     * N The size of the Sudoku boards: 4, 9, 16 or 25.
+     * throws IllegalArgumentException if boards of size N have no square boxes.
+     */
+    public Canonicalizer(int N) {
+        this.N = N;
+        this.subgridSize = (int) Math.sqrt(N);
+        if (subgridSize * subgridSize != N)
+            throw new IllegalArgumentException("Unsupported board size " + N + ", the boxes must be square");
+        grid = new int[N * N];
+        rowColor = new long[N];
+        colColor = new long[N];
+        digitColor = new long[N + 1];
+        bandColor = new long[subgridSize];
+        stackColor = new long[subgridSize];
+        nextRow = new long[N];
+        nextCol = new long[N];
+        nextDigit = new long[N + 1];
+        nextBand = new long[subgridSize];
+        nextStack = new long[subgridSize];
+        bandOrder = new int[subgridSize];
+        stackOrder = new int[subgridSize];
+        rowsOfBand = new int[subgridSize][subgridSize];
+        colsOfStack = new int[subgridSize][subgridSize];
+        segmentArray = new int[(2 * subgridSize + 2) * subgridSize][];
+        segmentFrom = new int[segmentArray.length];
+        segmentTo = new int[segmentFrom.length];
+        key = new char[N * N + 1];
+        rowOrder = new int[N];
+        colOrder = new int[N];
+        label = new int[N + 1];
+        best = new char[N * N + 1];
+        bestRowOrder = new int[N];
+        bestColOrder = new int[N];
+        bestLabel = new int[N + 1];
+        inverseLabel = new int[N + 1];
+    }
+
+    /**
+     * Returns the canonical key of the board's puzzle.
+     * throws IllegalArgumentException if the board is a variant or of another size than this canonicalizer.
+     */
+    public String canonicalKey(Board b) {
+        if (!b.geometry.isStandard() || b.N != N || b.geometry.boxRows != subgridSize)
+            throw new IllegalArgumentException("A canonicalizer for size " + N + " cannot key a " + b.geometry + " board");
+        return canonicalKey(b.tableau);
+    }
+
+    /**
+     * Returns the canonical key of a grid in the Board.readBoard encoding; givens and entries count alike.
+     * table The N x N grid; it is not modified.
+     */
+    public String canonicalKey(int[][] table) {
+        found = false;
+        boolean searched = true;
+        for (int o = 0; o < 2 && searched; o++) {
+            orient(table, o);
+            refine();
+            searched = order();
+            if (searched)
+                search(0);
+        }
+        if (!searched) {
+            // Too many ties: key the grid as it is, with its digits relabeled
+            found = false;
+            orient(table, 0);
+            for (int k = 0; k < N; k++)
+                rowOrder[k] = colOrder[k] = k;
+            key[0] = RELABELED;
+            evaluate();
+        }
+
+        // Digits missing from the puzzle take the remaining labels in increasing order
+        int next = 1;
+        for (int d = 1; d <= N; d++)
+            if (bestLabel[d] != 0)
+                next = Math.max(next, bestLabel[d] + 1);
+        for (int d = 1; d <= N; d++)
+            if (bestLabel[d] == 0)
+                bestLabel[d] = next++;
+        for (int d = 1; d <= N; d++)
+            inverseLabel[bestLabel[d]] = d;
+        return new String(best);
+    }
+
+    /**
+     * Moves a grid into the canonical form of the last key, e.g. the solution of that puzzle.
+     * table The N x N grid; signs are dropped.
+     * dest Receives the N*N canonical values in row-major order.
+     */
+    public void toCanonical(int[][] table, int[] dest) {
+        for (int i = 0; i < N; i++)
+            for (int j = 0; j < N; j++)
+                dest[i * N + j] = bestLabel[Math.abs(cell(table, bestRowOrder[i], bestColOrder[j]))];
+    }
+
+    /**
+     * Moves a canonical grid back to the coordinates and digits of the last key, filling the empty cells.
+     * canonical The N*N canonical values in row-major order, e.g. a cached solution.
+     * table The N x N grid; its empty cells receive positive values, the others are left unchanged.
+     */
+    public void fromCanonical(int[] canonical, int[][] table) {
+        for (int i = 0; i < N; i++)
+            for (int j = 0; j < N; j++) {
+                int r = bestRowOrder[i], c = bestColOrder[j];
+                int row = bestOrientation == 0 ? r : c, column = bestOrientation == 0 ? c : r;
+                if (table[row][column] == 0)
+                    table[row][column] = inverseLabel[canonical[i * N + j]];
+            }
+    }
+
+    private int cell(int[][] table, int r, int c) {
+        return bestOrientation == 0 ? table[r][c] : table[c][r];
+    }
+
+    // Copies the grid as it is (0) or transposed (1)
+    private void orient(int[][] table, int o) {
+        orientation = o;
+        for (int r = 0; r < N; r++)
+            for (int c = 0; c < N; c++)
+                grid[r * N + c] = Math.abs(o == 0 ? table[r][c] : table[c][r]);
+    }
+
+    /**
+     * Colors lines, digits, bands and stacks by what they contain, a few rounds deep.
+     * Every color only depends on the structure of the grid, so symmetric grids get the same colors.
+     */
+    private void refine() {
+        Arrays.fill(rowColor, 0);
+        Arrays.fill(colColor, 0);
+        Arrays.fill(digitColor, 0);
+        Arrays.fill(bandColor, 0);
+        Arrays.fill(stackColor, 0);
+        digitColor[0] = -1;
+        for (int r = 0; r < N; r++)
+            for (int c = 0; c < N; c++)
+                if (grid[r * N + c] != 0) {
+                    rowColor[r]++;
+                    colColor[c]++;
+                    digitColor[grid[r * N + c]]++;
+                }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            Arrays.fill(nextRow, 0);
+            Arrays.fill(nextCol, 0);
+            Arrays.fill(nextDigit, 0);
+            Arrays.fill(nextBand, 0);
+            Arrays.fill(nextStack, 0);
+            for (int r = 0; r < N; r++)
+                for (int c = 0; c < N; c++) {
+                    int v = grid[r * N + c];
+                    // Sums of mixed pairs do not depend on the order of the lines
+                    nextRow[r] += mix(colColor[c], digitColor[v]);
+                    nextCol[c] += mix(rowColor[r], digitColor[v]);
+                    if (v != 0)
+                        nextDigit[v] += mix(rowColor[r], colColor[c]);
+                }
+            for (int k = 0; k < N; k++) {
+                nextBand[k / subgridSize] += rowColor[k];
+                nextStack[k / subgridSize] += colColor[k];
+            }
+            for (int k = 0; k < N; k++) {
+                nextRow[k] = mix(mix(rowColor[k], bandColor[k / subgridSize]), nextRow[k]);
+                nextCol[k] = mix(mix(colColor[k], stackColor[k / subgridSize]), nextCol[k]);
+                nextDigit[k + 1] = mix(digitColor[k + 1], nextDigit[k + 1]);
+            }
+            nextDigit[0] = digitColor[0];
+            for (int k = 0; k < subgridSize; k++) {
+                nextBand[k] = mix(bandColor[k], nextBand[k]);
+                nextStack[k] = mix(stackColor[k], nextStack[k]);
+            }
+            long[] swap;
+            swap = rowColor; rowColor = nextRow; nextRow = swap;
+            swap = colColor; colColor = nextCol; nextCol = swap;
+            swap = digitColor; digitColor = nextDigit; nextDigit = swap;
+            swap = bandColor; bandColor = nextBand; nextBand = swap;
+            swap = stackColor; stackColor = nextStack; nextStack = swap;
+        }
+    }
+
+    // Mixes two colors into one (a 64-bit finalizer over an asymmetric combination)
+    private static long mix(long a, long b) {
+        long h = a * 0x9E3779B97F4A7C15L + b;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    /**
+     * Sorts bands, stacks and the lines inside them by color and records every run of equal colors as
+     * a segment to permute.
+     * returns false if the runs allow more than MAX_ORDERINGS orderings.
+     */
+    private boolean order() {
+        segments = 0;
+        long orderings = 1;
+        for (int k = 0; k < subgridSize; k++) {
+            bandOrder[k] = stackOrder[k] = k;
+            for (int m = 0; m < subgridSize; m++) {
+                rowsOfBand[k][m] = k * subgridSize + m;
+                colsOfStack[k][m] = k * subgridSize + m;
+            }
+        }
+        orderings *= sort(bandOrder, bandColor);
+        orderings *= sort(stackOrder, stackColor);
+        for (int k = 0; k < subgridSize && orderings <= MAX_ORDERINGS; k++) {
+            orderings *= sort(rowsOfBand[k], rowColor);
+            orderings *= sort(colsOfStack[k], colColor);
+        }
+        return orderings <= MAX_ORDERINGS;
+    }
+
+    /**
+     * Sorts items by color and adds a segment for every run of equal colors.
+     * returns the number of orderings of the runs, capped above MAX_ORDERINGS.
+     */
+    private long sort(int[] items, long[] color) {
+        for (int k = 1; k < items.length; k++)
+            for (int m = k; m > 0 && color[items[m]] < color[items[m - 1]]; m--) {
+                int t = items[m];
+                items[m] = items[m - 1];
+                items[m - 1] = t;
+            }
+        long orderings = 1;
+        for (int from = 0, to; from < items.length; from = to) {
+            to = from + 1;
+            while (to < items.length && color[items[to]] == color[items[from]])
+                to++;
+            if (to - from > 1) {
+                segmentArray[segments] = items;
+                segmentFrom[segments] = from;
+                segmentTo[segments] = to;
+                segments++;
+                for (int f = 2; f <= to - from && orderings <= MAX_ORDERINGS; f++)
+                    orderings *= f;
+            }
+        }
+        return Math.min(orderings, MAX_ORDERINGS + 1);
+    }
+
+    // Tries every permutation of every segment from segment k on
+    private void search(int k) {
+        if (k == segments) {
+            for (int s = 0; s < subgridSize; s++)
+                for (int m = 0; m < subgridSize; m++) {
+                    rowOrder[s * subgridSize + m] = rowsOfBand[bandOrder[s]][m];
+                    colOrder[s * subgridSize + m] = colsOfStack[stackOrder[s]][m];
+                }
+            key[0] = CANONICAL;
+            evaluate();
+            return;
+        }
+        permute(k, segmentFrom[k]);
+    }
+
+    private void permute(int k, int position) {
+        int[] items = segmentArray[k];
+        if (position >= segmentTo[k] - 1) {
+            search(k + 1);
+            return;
+        }
+        for (int m = position; m < segmentTo[k]; m++) {
+            swap(items, position, m);
+            permute(k, position + 1);
+            swap(items, position, m);
+        }
+    }
+
+    private static void swap(int[] items, int a, int b) {
+        int t = items[a];
+        items[a] = items[b];
+        items[b] = t;
+    }
+
+    /**
+     * Builds the key of the current ordering, relabeling digits in order of first appearance, and keeps
+     * it if it is the smallest so far. Stops as soon as the key is known to be larger.
+     */
+    private void evaluate() {
+        Arrays.fill(label, 0);
+        int next = 1;
+        boolean smaller = !found;
+        for (int i = 0; i < N; i++)
+            for (int j = 0; j < N; j++) {
+                int v = grid[rowOrder[i] * N + colOrder[j]];
+                if (v != 0 && label[v] == 0)
+                    label[v] = next++;
+                char c = (char) label[v];
+                int index = i * N + j + 1;
+                key[index] = c;
+                if (!smaller) {
+                    if (c > best[index])
+                        return;
+                    if (c < best[index])
+                        smaller = true;
+                }
+            }
+        if (!smaller && key[0] == best[0])
+            return;
+        found = true;
+        System.arraycopy(key, 0, best, 0, key.length);
+        System.arraycopy(rowOrder, 0, bestRowOrder, 0, N);
+        System.arraycopy(colOrder, 0, bestColOrder, 0, N);
+        System.arraycopy(label, 0, bestLabel, 0, N + 1);
+        bestOrientation = orientation;
+    }
+}
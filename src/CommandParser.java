@@ -0,0 +1,76 @@
+/**
+ * The CommandParser class walks through a buffered line holding several i,j=val commands.
+ * Commands are separated by whitespace or ';'. Each command is parsed in place with
+ * Sudoku.parseInput into a caller-supplied UserChoice, so a whole batch is parsed without allocation.
+ * Usage:
+ *   parser.reset(line);
+ *   while (parser.hasNext())
+ *       if (parser.next(choice)) ... else ... malformed command
+ */
+public class CommandParser {
+    private CharSequence line;
+    private int end;
+    private int pos;
+
+    // Bounds of the last command returned by next
+    private int commandStart;
+    private int commandEnd;
+
+    /**
+     * Starts parsing a new line of commands.
+     * line The characters to parse; they must not change until the line is fully parsed.
+     */
+    public void reset(CharSequence line) {
+        reset(line, 0, line.length());
+    }
+
+    /**
+     * Starts parsing the commands in line[from, to).
+     */
+    public void reset(CharSequence line, int from, int to) {
+        this.line = line;
+        this.pos = from;
+        this.end = to;
+    }
+
+    /**
+     * Checks if another command follows, skipping any separators.
+     */
+    public boolean hasNext() {
+        while (pos < end && isSeparator(line.charAt(pos)))
+            pos++;
+        return pos < end;
+    }
+
+    /**
+     * Parses the next command into choice.
+     * choice Receives the move; left unchanged if the command is malformed.
+     * returns true if the command is well-formed, false if it is malformed (it is skipped either way).
+     */
+    public boolean next(UserChoice choice) {
+        hasNext();
+        commandStart = pos;
+        while (pos < end && !isSeparator(line.charAt(pos)))
+            pos++;
+        commandEnd = pos;
+        return commandStart < commandEnd && Sudoku.parseInput(line, commandStart, commandEnd, choice);
+    }
+
+    /**
+     * Returns the index of the first character of the last command returned by next.
+     */
+    public int commandStart() {
+        return commandStart;
+    }
+
+    /**
+     * Returns the index after the last character of the last command returned by next.
+     */
+    public int commandEnd() {
+        return commandEnd;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ';' || Character.isWhitespace(c);
+    }
+}
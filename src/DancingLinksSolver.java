@@ -0,0 +1,261 @@
+/**
+ * The DancingLinksSolver class solves Sudoku boards as an exact cover problem with Knuth's
+ * Algorithm X on dancing links (DLX).
+ * The cover matrix has one row per (cell, value) pair and four constraint columns per row:
+ * the cell is filled, and the value appears in the row, the column and the subgrid.
+ * The node pool is allocated once per board size and restored after every search, so it is
+ * reused across boards; this mode scales to 16x16 and 25x25 boards.
+ */
+public class DancingLinksSolver implements Solver {
+    // The size of the Sudoku board and the number of cells
+    private final int N;
+    private final int cells;
+
+    // Node pool: links, column header of every node and the candidate row every node belongs to
+    // Index 0 is the root header and indices 1..columns are the column headers
+    private final int[] left;
+    private final int[] right;
+    private final int[] up;
+    private final int[] down;
+    private final int[] column;
+    private final int[] candidate;
+
+    // Number of nodes currently linked in every column
+    private final int[] size;
+
+    // First node of every candidate row, indexed by (cell * N + value - 1)
+    private final int[] rowStart;
+
+    // Rows selected for the givens and by the search, in selection order
+    private final int[] selected;
+
+    // The first solution found by the current search
+    private final int[] solution;
+
+    private int found;
+    private int limit;
+    private long nodes;
+
+    /**
+     * Constructor to create a solver for boards of size N.
+     * N The size of the Sudoku board, a perfect square.
+     */
+    public DancingLinksSolver(int N) {
+        int s = (int) Math.sqrt(N);
+        if (s * s != N || N < 1)
+            throw new IllegalArgumentException("Unsupported board size " + N);
+        this.N = N;
+        this.cells = N * N;
+
+        int columns = 4 * cells;
+        int total = 1 + columns + 4 * cells * N;
+        left = new int[total];
+        right = new int[total];
+        up = new int[total];
+        down = new int[total];
+        column = new int[total];
+        candidate = new int[total];
+        size = new int[columns + 1];
+        rowStart = new int[cells * N];
+        selected = new int[cells];
+        solution = new int[cells];
+
+        // Link the root and the column headers in a circular list
+        for (int c = 0; c <= columns; c++) {
+            left[c] = c == 0 ? columns : c - 1;
+            right[c] = c == columns ? 0 : c + 1;
+            up[c] = c;
+            down[c] = c;
+            column[c] = c;
+        }
+
+        // Append the four nodes of every (cell, value) row
+        int next = columns + 1;
+        for (int cell = 0; cell < cells; cell++) {
+            int r = cell / N, c = cell % N, b = (r / s) * s + c / s;
+            for (int v = 0; v < N; v++) {
+                int row = cell * N + v;
+                int first = next;
+                rowStart[row] = first;
+                int[] headers = {
+                        1 + cell,
+                        1 + cells + r * N + v,
+                        1 + 2 * cells + c * N + v,
+                        1 + 3 * cells + b * N + v
+                };
+                for (int k = 0; k < 4; k++) {
+                    int node = next++;
+                    int header = headers[k];
+                    column[node] = header;
+                    candidate[node] = row;
+                    up[node] = up[header];
+                    down[node] = header;
+                    down[up[header]] = node;
+                    up[header] = node;
+                    size[header]++;
+                    left[node] = k == 0 ? first + 3 : node - 1;
+                    right[node] = k == 3 ? first : node + 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Default constructor to create a solver for 9x9 boards.
+     */
+    public DancingLinksSolver() {
+        this(9);
+    }
+
+    @Override
+    public int solve(int[][] grid, int limit) {
+        int count = search(grid, limit);
+        if (count > 0)
+            for (int cell = 0; cell < cells; cell++)
+                if (grid[cell / N][cell % N] == 0)
+                    grid[cell / N][cell % N] = solution[cell];
+        return count;
+    }
+
+    @Override
+    public int countSolutions(int[][] grid, int limit) {
+        return search(grid, limit);
+    }
+
+    @Override
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    /**
+     * Selects the rows of the givens, runs Algorithm X and restores the node pool.
+     * returns the number of solutions found, or 0 if the grid is malformed or its givens conflict.
+     */
+    private int search(int[][] grid, int limit) {
+        this.found = 0;
+        this.limit = limit;
+        this.nodes = 0;
+        if (limit <= 0 || grid.length != N)
+            return 0;
+
+        long start = Metrics.start();
+        int givens = 0;
+        boolean consistent = true;
+        for (int cell = 0; cell < cells && consistent; cell++) {
+            int[] row = grid[cell / N];
+            if (row.length != N) {
+                consistent = false;
+                break;
+            }
+            int value = Math.abs(row[cell % N]);
+            if (value == 0)
+                continue;
+            if (value > N || !isAvailable(rowStart[cell * N + value - 1])) {
+                consistent = false;
+                break;
+            }
+            selectRow(rowStart[cell * N + value - 1]);
+            selected[givens++] = rowStart[cell * N + value - 1];
+        }
+
+        if (consistent)
+            search(givens);
+
+        // Undo the givens in reverse order so that the pool is ready for the next board
+        for (int k = givens - 1; k >= 0; k--)
+            unselectRow(selected[k]);
+        Metrics.SOLVE_DLX.stop(start);
+        Metrics.SEARCH_NODES.add(nodes);
+        return found;
+    }
+
+    /**
+     * Runs Algorithm X on the remaining columns; depth is the number of rows selected so far.
+     */
+    private void search(int depth) {
+        nodes++;
+        if (right[0] == 0) {
+            if (found++ == 0)
+                for (int k = 0; k < depth; k++) {
+                    int row = candidate[selected[k]];
+                    solution[row / N] = row % N + 1;
+                }
+            return;
+        }
+
+        // Branch on the column with the fewest remaining rows
+        int best = right[0];
+        for (int c = right[best]; c != 0; c = right[c])
+            if (size[c] < size[best])
+                best = c;
+        if (size[best] == 0)
+            return;
+
+        cover(best);
+        for (int node = down[best]; node != best && found < limit; node = down[node]) {
+            selected[depth] = node;
+            for (int j = right[node]; j != node; j = right[j])
+                cover(column[j]);
+            search(depth + 1);
+            for (int j = left[node]; j != node; j = left[j])
+                uncover(column[j]);
+        }
+        uncover(best);
+    }
+
+    // Checks if all four columns of the row containing node are still uncovered
+    private boolean isAvailable(int node) {
+        int j = node;
+        do {
+            int c = column[j];
+            if (right[left[c]] != c)
+                return false;
+            j = right[j];
+        } while (j != node);
+        return true;
+    }
+
+    // Adds the row containing node to the partial solution by covering all of its columns
+    private void selectRow(int node) {
+        int j = node;
+        do {
+            cover(column[j]);
+            j = right[j];
+        } while (j != node);
+    }
+
+    // Reverts selectRow
+    private void unselectRow(int node) {
+        int j = node;
+        do {
+            j = left[j];
+            uncover(column[j]);
+        } while (j != node);
+    }
+
+    // Removes column c from the header list and every row that intersects it from the other columns
+    private void cover(int c) {
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for (int i = down[c]; i != c; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                size[column[j]]--;
+            }
+        }
+    }
+
+    // Reverts cover in exactly the opposite order
+    private void uncover(int c) {
+        for (int i = up[c]; i != c; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                size[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+    }
+}
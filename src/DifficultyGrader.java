@@ -0,0 +1,777 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The DifficultyGrader class rates a puzzle by solving it the way a person would: with a ladder of
+ * deduction techniques, from naked singles to chains, and no guessing.
+ * After every successful step the ladder restarts from the easiest technique, so each technique is
+ * only used when nothing easier applies. The grade records how often each technique was needed and
+ * turns that into a score; a puzzle the ladder cannot finish is rated as needing trial and error.
+ * Every grader keeps per-technique counters (calls, successful applications and nanoseconds), so a
+ * corpus run shows which deduction steps are hot.
+ * The units come from a Geometry, so rectangular boxes, jigsaw regions and the diagonals of a variant
+ * constrain the deductions like rows and columns do; fish only work on rows and columns.
+ * Candidates are kept as bitmasks (bit v-1 set for value v). A grader is not thread-safe; use one per thread.
+ */
+public class DifficultyGrader {
+    // The techniques of the ladder, from the easiest to the hardest
+    public static final int NAKED_SINGLE = 0;
+    public static final int HIDDEN_SINGLE = 1;
+    public static final int LOCKED_CANDIDATES = 2;
+    public static final int NAKED_SUBSET = 3;
+    public static final int HIDDEN_SUBSET = 4;
+    public static final int X_WING = 5;
+    public static final int SWORDFISH = 6;
+    public static final int XY_WING = 7;
+    public static final int COLORING = 8;
+    public static final int TECHNIQUES = 9;
+
+    public static final String[] NAMES = {
+            "naked single", "hidden single", "locked candidates", "naked subset", "hidden subset",
+            "x-wing", "swordfish", "xy-wing", "coloring" };
+
+    // Score of one application of every technique
+    private static final int[] WEIGHTS = { 1, 2, 10, 20, 30, 50, 70, 80, 100 };
+
+    // Ratings derived from the hardest technique needed
+    public static final String[] RATINGS = { "easy", "medium", "hard", "fiendish", "unsolved", "invalid" };
+
+    // Largest naked or hidden subset looked for
+    private static final int MAX_SUBSET = 4;
+
+    /**
+     * The grade of one puzzle.
+     */
+    public static class Grade {
+        // True if the ladder filled every cell
+        public final boolean solved;
+        // False if the givens break a rule or a deduction emptied a cell
+        public final boolean consistent;
+        // Sum of the weights of all applications; unsolved puzzles get the score of the steps that were possible
+        public final int score;
+        // The hardest technique used, or -1 if the puzzle needed none
+        public final int hardest;
+        // Applications of every technique, indexed by technique
+        public final int[] uses;
+
+        Grade(boolean solved, boolean consistent, int score, int hardest, int[] uses) {
+            this.solved = solved;
+            this.consistent = consistent;
+            this.score = score;
+            this.hardest = hardest;
+            this.uses = uses;
+        }
+
+        /**
+         * Returns the rating: easy (singles), medium (locked candidates and subsets), hard (fish and
+         * xy-wings), fiendish (chains), unsolved (needs guessing) or invalid.
+         */
+        public String rating() {
+            if (!consistent)
+                return RATINGS[5];
+            if (!solved)
+                return RATINGS[4];
+            if (hardest <= HIDDEN_SINGLE)
+                return RATINGS[0];
+            if (hardest <= HIDDEN_SUBSET)
+                return RATINGS[1];
+            if (hardest <= XY_WING)
+                return RATINGS[2];
+            return RATINGS[3];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(rating()).append(' ').append(score);
+            for (int t = 0; t < TECHNIQUES; t++)
+                sb.append(' ').append(uses[t]);
+            return sb.toString();
+        }
+    }
+
+    // The units of the boards, their size and number of cells
+    private final Geometry geometry;
+    private final int N;
+    private final int cells;
+    private final int full;
+
+    // Cells of every unit in Geometry order: rows, columns, boxes, then any diagonals
+    private final int[][] units;
+
+    // Units of every cell, row first
+    private final int[][] unitsOf;
+
+    // Row, column and box of every cell, and whether the geometry has diagonal units
+    private final int[] rowOf;
+    private final int[] colOf;
+    private final int[] boxOf;
+    private final boolean diagonals;
+
+    // Rows and columns crossing every box, as bitmasks of their indexes
+    private final int[] rowsOfBox;
+    private final int[] columnsOfBox;
+
+    // Cells sharing a unit with each cell, excluding the cell itself
+    private final int[][] peers;
+
+    // State of the puzzle being graded: values (0 for empty), candidates and number of empty cells
+    private final int[] value;
+    private final int[] cand;
+    private int empty;
+    private boolean broken;
+
+    // Scratch space of the techniques
+    private final int[] masks;
+    private final int[] colorOf;
+    private final int[] queue;
+    private final int[] unitPositions;
+    private final int[] uses = new int[TECHNIQUES];
+
+    // State of the subset search: the kind of subset, and the unit or the digit it is looked for in
+    private static final int NAKED = 0, HIDDEN = 1, FISH_ROWS = 2, FISH_COLUMNS = 3;
+    private int subsetKind;
+    private int subsetTarget;
+
+    // Counters over the lifetime of this grader, indexed by technique
+    private final long[] calls = new long[TECHNIQUES];
+    private final long[] applications = new long[TECHNIQUES];
+    private final long[] nanos = new long[TECHNIQUES];
+
+    /**
+     * Constructor to create a grader for standard boards of size N.
+     * N The size of the Sudoku boards.
+     */
+    public DifficultyGrader(int N) {
+        this(Geometry.standard(N));
+    }
+
+    /**
+     * Constructor to create a grader for boards of any geometry; the unit and peer tables are built once here.
+     * geometry The units of the boards.
+     */
+    public DifficultyGrader(Geometry geometry) {
+        this.geometry = geometry;
+        this.N = geometry.N;
+        this.cells = geometry.cells;
+        this.full = (1 << N) - 1;
+        this.diagonals = geometry.unitCount > 3 * N;
+
+        units = new int[geometry.unitCount][N];
+        for (int u = 0; u < geometry.unitCount; u++)
+            for (int k = 0; k < N; k++)
+                units[u][k] = geometry.cellOf(u, k);
+
+        unitsOf = new int[cells][];
+        rowOf = new int[cells];
+        colOf = new int[cells];
+        boxOf = new int[cells];
+        rowsOfBox = new int[N];
+        columnsOfBox = new int[N];
+        for (int cell = 0; cell < cells; cell++) {
+            unitsOf[cell] = Arrays.copyOfRange(geometry.cellUnits, geometry.cellUnitStart[cell], geometry.cellUnitStart[cell + 1]);
+            rowOf[cell] = cell / N;
+            colOf[cell] = cell % N;
+            boxOf[cell] = geometry.boxOf(cell);
+            rowsOfBox[boxOf[cell]] |= 1 << rowOf[cell];
+            columnsOfBox[boxOf[cell]] |= 1 << colOf[cell];
+        }
+
+        peers = new int[cells][];
+        int[] list = new int[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            int count = 0;
+            for (int other = 0; other < cells; other++)
+                if (other != cell && sees(cell, other))
+                    list[count++] = other;
+            peers[cell] = Arrays.copyOf(list, count);
+        }
+
+        value = new int[cells];
+        cand = new int[cells];
+        masks = new int[N];
+        colorOf = new int[cells];
+        queue = new int[cells];
+        unitPositions = new int[geometry.unitCount];
+    }
+
+    /**
+     * Grades the puzzle of a board; the board is not modified.
+     * throws IllegalArgumentException if the board has another geometry than this grader.
+     */
+    public Grade grade(Board b) {
+        if (b.geometry != geometry)
+            throw new IllegalArgumentException("A grader for " + geometry + " boards cannot grade a " + b.geometry + " board");
+        return grade(b.tableau);
+    }
+
+    /**
+     * Grades a puzzle in the Board.readBoard encoding; the grid is not modified.
+     * grid The N x N grid; negative and positive values are both taken as filled cells.
+     */
+    public Grade grade(int[][] grid) {
+        load(grid);
+        Arrays.fill(uses, 0);
+        int score = 0, hardest = -1;
+
+        ladder:
+        while (empty > 0 && !broken) {
+            for (int t = 0; t < TECHNIQUES; t++) {
+                long start = System.nanoTime();
+                int applied = apply(t);
+                nanos[t] += System.nanoTime() - start;
+                calls[t]++;
+                if (applied > 0) {
+                    uses[t] += applied;
+                    applications[t] += applied;
+                    score += WEIGHTS[t] * applied;
+                    hardest = Math.max(hardest, t);
+                    continue ladder;
+                }
+            }
+            break;
+        }
+        return new Grade(empty == 0 && !broken, !broken, score, hardest, uses.clone());
+    }
+
+    public long[] getCalls() {
+        return calls;
+    }
+
+    public long[] getApplications() {
+        return applications;
+    }
+
+    public long[] getNanos() {
+        return nanos;
+    }
+
+    /**
+     * Fills the values and candidates from a grid; marks the puzzle broken if the givens break a rule.
+     */
+    private void load(int[][] grid) {
+        broken = false;
+        empty = 0;
+        int[] used = unitPositions;
+        Arrays.fill(used, 0);
+        for (int cell = 0; cell < cells; cell++) {
+            int v = Math.abs(grid[cell / N][cell % N]);
+            value[cell] = v;
+            if (v == 0) {
+                empty++;
+                continue;
+            }
+            int bit = 1 << (v - 1);
+            for (int u : unitsOf[cell]) {
+                if ((used[u] & bit) != 0)
+                    broken = true;
+                used[u] |= bit;
+            }
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            if (value[cell] != 0) {
+                cand[cell] = 0;
+                continue;
+            }
+            int taken = 0;
+            for (int u : unitsOf[cell])
+                taken |= used[u];
+            cand[cell] = full & ~taken;
+            if (cand[cell] == 0)
+                broken = true;
+        }
+    }
+
+    /**
+     * Runs one technique. Singles place every value they find; the other techniques stop after the
+     * first pattern that removes a candidate.
+     * returns the number of applications, 0 if the technique made no progress.
+     */
+    private int apply(int technique) {
+        switch (technique) {
+            case NAKED_SINGLE:
+                return nakedSingles();
+            case HIDDEN_SINGLE:
+                return hiddenSingles();
+            case LOCKED_CANDIDATES:
+                return lockedCandidates() ? 1 : 0;
+            case NAKED_SUBSET:
+                return nakedSubsets() ? 1 : 0;
+            case HIDDEN_SUBSET:
+                return hiddenSubsets() ? 1 : 0;
+            case X_WING:
+                return fish(2) ? 1 : 0;
+            case SWORDFISH:
+                return fish(3) ? 1 : 0;
+            case XY_WING:
+                return xyWing() ? 1 : 0;
+            default:
+                return coloring() ? 1 : 0;
+        }
+    }
+
+    // Checks if two cells share a row, column, box or diagonal
+    private boolean sees(int a, int b) {
+        return rowOf[a] == rowOf[b] || colOf[a] == colOf[b] || boxOf[a] == boxOf[b]
+                || diagonals && (rowOf[a] == colOf[a] && rowOf[b] == colOf[b]
+                        || rowOf[a] + colOf[a] == N - 1 && rowOf[b] + colOf[b] == N - 1);
+    }
+
+    // Writes a value (bit) into an empty cell and removes it from the candidates of its peers
+    private void place(int cell, int bit) {
+        if ((cand[cell] & bit) == 0) {
+            broken = true;
+            return;
+        }
+        value[cell] = Integer.numberOfTrailingZeros(bit) + 1;
+        cand[cell] = 0;
+        empty--;
+        for (int peer : peers[cell])
+            if (value[peer] == 0 && (cand[peer] &= ~bit) == 0)
+                broken = true;
+    }
+
+    // Removes candidates from a cell; returns true if any was there
+    private boolean remove(int cell, int bits) {
+        if ((cand[cell] & bits) == 0)
+            return false;
+        if ((cand[cell] &= ~bits) == 0)
+            broken = true;
+        return true;
+    }
+
+    private int nakedSingles() {
+        int placed = 0;
+        for (int cell = 0; cell < cells && !broken; cell++) {
+            int c = cand[cell];
+            if (c != 0 && (c & (c - 1)) == 0) {
+                place(cell, c);
+                placed++;
+            }
+        }
+        return placed;
+    }
+
+    private int hiddenSingles() {
+        int placed = 0;
+        for (int[] unit : units) {
+            int once = 0, twice = 0;
+            for (int cell : unit) {
+                twice |= once & cand[cell];
+                once |= cand[cell];
+            }
+            for (int singles = once & ~twice; singles != 0 && !broken; singles &= singles - 1) {
+                int bit = Integer.lowestOneBit(singles);
+                for (int cell : unit)
+                    if ((cand[cell] & bit) != 0) {
+                        place(cell, bit);
+                        placed++;
+                        break;
+                    }
+            }
+            if (broken)
+                break;
+        }
+        return placed;
+    }
+
+    /**
+     * Pointing and claiming: a value confined to the intersection of a box and a row or column
+     * within one of them is removed from the rest of the other. The rows and columns crossing a box
+     * are tried in turn, from the top and the left.
+     */
+    private boolean lockedCandidates() {
+        for (int box = 0; box < N; box++) {
+            int[] boxCells = units[2 * N + box];
+            for (int rows = rowsOfBox[box], columns = columnsOfBox[box]; rows != 0 || columns != 0; rows &= rows - 1, columns &= columns - 1) {
+                if (rows != 0 && locked(boxCells, box, units[Integer.numberOfTrailingZeros(rows)], rowOf))
+                    return true;
+                if (columns != 0 && locked(boxCells, box, units[N + Integer.numberOfTrailingZeros(columns)], colOf))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean locked(int[] boxCells, int box, int[] line, int[] lineOf) {
+        int lineIndex = lineOf[line[0]];
+        int inside = 0, boxRest = 0, lineRest = 0;
+        for (int cell : boxCells)
+            if (lineOf[cell] == lineIndex)
+                inside |= cand[cell];
+            else
+                boxRest |= cand[cell];
+        for (int cell : line)
+            if (boxOf[cell] != box)
+                lineRest |= cand[cell];
+
+        boolean changed = false;
+        int pointing = inside & ~boxRest & lineRest;
+        if (pointing != 0)
+            for (int cell : line)
+                if (boxOf[cell] != box)
+                    changed |= remove(cell, pointing);
+        if (changed)
+            return true;
+        int claiming = inside & ~lineRest & boxRest;
+        if (claiming != 0)
+            for (int cell : boxCells)
+                if (lineOf[cell] != lineIndex)
+                    changed |= remove(cell, claiming);
+        return changed;
+    }
+
+    // Naked subsets: k cells of a unit whose candidates are k values, which the other cells cannot hold
+    private boolean nakedSubsets() {
+        subsetKind = NAKED;
+        for (int size = 2; size <= MAX_SUBSET; size++)
+            for (int u = 0; u < units.length; u++) {
+                for (int k = 0; k < N; k++)
+                    masks[k] = cand[units[u][k]];
+                subsetTarget = u;
+                if (subset(size, 0, 0, 0, 0))
+                    return true;
+            }
+        return false;
+    }
+
+    // Hidden subsets: k values that only k cells of a unit can hold, so those cells hold nothing else
+    private boolean hiddenSubsets() {
+        subsetKind = HIDDEN;
+        for (int size = 2; size <= MAX_SUBSET; size++)
+            for (int u = 0; u < units.length; u++) {
+                Arrays.fill(masks, 0);
+                for (int k = 0; k < N; k++)
+                    for (int bits = cand[units[u][k]]; bits != 0; bits &= bits - 1)
+                        masks[Integer.numberOfTrailingZeros(bits)] |= 1 << k;
+                subsetTarget = u;
+                if (subset(size, 0, 0, 0, 0))
+                    return true;
+            }
+        return false;
+    }
+
+    // Fish of the given size (2 for X-Wing, 3 for Swordfish) on rows, then on columns
+    private boolean fish(int size) {
+        for (int d = 0; d < N; d++) {
+            int bit = 1 << d;
+            subsetTarget = d;
+            for (int kind = FISH_ROWS; kind <= FISH_COLUMNS; kind++) {
+                subsetKind = kind;
+                Arrays.fill(masks, 0);
+                for (int cell = 0; cell < cells; cell++)
+                    if ((cand[cell] & bit) != 0) {
+                        if (kind == FISH_ROWS)
+                            masks[rowOf[cell]] |= 1 << colOf[cell];
+                        else
+                            masks[colOf[cell]] |= 1 << rowOf[cell];
+                    }
+                if (subset(size, 0, 0, 0, 0))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Searches masks for size entries with 2..size bits each whose union has exactly size bits, and
+     * applies the elimination of the current subset kind to every one found until one makes progress.
+     * chosen The entries picked so far, as a bitmask of indexes; union The OR of their masks.
+     */
+    private boolean subset(int size, int start, int depth, int chosen, int union) {
+        if (depth == size)
+            return Integer.bitCount(union) == size && eliminateSubset(chosen, union);
+        for (int k = start; k <= N - (size - depth); k++) {
+            int count = Integer.bitCount(masks[k]);
+            if (count < 2 || count > size)
+                continue;
+            int merged = union | masks[k];
+            if (Integer.bitCount(merged) <= size && subset(size, k + 1, depth + 1, chosen | 1 << k, merged))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean eliminateSubset(int chosen, int union) {
+        boolean changed = false;
+        switch (subsetKind) {
+            case NAKED:
+                // chosen are cells of the unit, union their values
+                for (int k = 0; k < N; k++)
+                    if ((chosen & 1 << k) == 0)
+                        changed |= remove(units[subsetTarget][k], union);
+                return changed;
+            case HIDDEN:
+                // chosen are values, union the cells of the unit holding them
+                for (int bits = union; bits != 0; bits &= bits - 1)
+                    changed |= remove(units[subsetTarget][Integer.numberOfTrailingZeros(bits)], full & ~chosen);
+                return changed;
+            default:
+                // chosen are base lines, union the cover lines the value is removed from elsewhere
+                for (int bits = union; bits != 0; bits &= bits - 1) {
+                    int cover = Integer.numberOfTrailingZeros(bits);
+                    for (int line = 0; line < N; line++)
+                        if ((chosen & 1 << line) == 0)
+                            changed |= remove(subsetKind == FISH_ROWS ? line * N + cover : cover * N + line,
+                                    1 << subsetTarget);
+                }
+                return changed;
+        }
+    }
+
+    /**
+     * XY-Wing: a pivot {x,y} sees wings {x,z} and {y,z}; whichever value the pivot takes, one wing is z,
+     * so z is removed from every cell seeing both wings.
+     */
+    private boolean xyWing() {
+        for (int pivot = 0; pivot < cells; pivot++) {
+            int p = cand[pivot];
+            if (Integer.bitCount(p) != 2)
+                continue;
+            for (int first : peers[pivot]) {
+                int a = cand[first];
+                if (Integer.bitCount(a) != 2 || Integer.bitCount(a & p) != 1)
+                    continue;
+                int z = a & ~p;
+                int wanted = (p & ~a) | z;
+                for (int second : peers[pivot]) {
+                    if (cand[second] != wanted || sees(first, second))
+                        continue;
+                    boolean changed = false;
+                    for (int cell : peers[first])
+                        if (cell != second && sees(cell, second))
+                            changed |= remove(cell, z);
+                    if (changed)
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Simple coloring, the single-value chain: cells linked by units where a value has exactly two
+     * places are colored alternately. Two cells of one color in the same unit make that color false;
+     * a cell seeing both colors cannot hold the value.
+     */
+    private boolean coloring() {
+        for (int d = 0; d < N; d++) {
+            int bit = 1 << d;
+            for (int u = 0; u < units.length; u++) {
+                int positions = 0;
+                for (int k = 0; k < N; k++)
+                    if ((cand[units[u][k]] & bit) != 0)
+                        positions |= 1 << k;
+                unitPositions[u] = positions;
+            }
+            Arrays.fill(colorOf, -1);
+            int components = 0;
+            for (int start = 0; start < cells; start++) {
+                if ((cand[start] & bit) == 0 || colorOf[start] >= 0)
+                    continue;
+                int size = chain(start, bit, components);
+                if (size > 2 && eliminateColors(components, size, bit))
+                    return true;
+                components++;
+            }
+        }
+        return false;
+    }
+
+    // Colors the component of start breadth-first; its cells are left in queue[0..size)
+    private int chain(int start, int bit, int component) {
+        int head = 0, tail = 0;
+        colorOf[start] = 2 * component;
+        queue[tail++] = start;
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int u : unitsOf[cell]) {
+                int positions = unitPositions[u];
+                if (Integer.bitCount(positions) != 2)
+                    continue;
+                for (int bits = positions; bits != 0; bits &= bits - 1) {
+                    int other = units[u][Integer.numberOfTrailingZeros(bits)];
+                    if (colorOf[other] < 0) {
+                        colorOf[other] = colorOf[cell] ^ 1;
+                        queue[tail++] = other;
+                    }
+                }
+            }
+        }
+        return tail;
+    }
+
+    private boolean eliminateColors(int component, int size, int bit) {
+        // Color wrap: two cells of the same color see each other
+        for (int a = 0; a < size; a++)
+            for (int b = a + 1; b < size; b++)
+                if (colorOf[queue[a]] == colorOf[queue[b]] && sees(queue[a], queue[b])) {
+                    int falseColor = colorOf[queue[a]];
+                    boolean changed = false;
+                    for (int k = 0; k < size; k++)
+                        if (colorOf[queue[k]] == falseColor)
+                            changed |= remove(queue[k], bit);
+                    return changed;
+                }
+
+        // Color trap: a cell outside the chain sees both colors
+        boolean changed = false;
+        for (int cell = 0; cell < cells; cell++) {
+            if ((cand[cell] & bit) == 0 || colorOf[cell] >> 1 == component)
+                continue;
+            int seen = 0;
+            for (int k = 0; k < size && seen != 3; k++)
+                if (sees(cell, queue[k]))
+                    seen |= 1 << (colorOf[queue[k]] & 1);
+            if (seen == 3)
+                changed |= remove(cell, bit);
+        }
+        return changed;
+    }
+
+    /**
+     * A contiguous range of boards, split in halves until it is small enough to run directly.
+     */
+    private static class Range extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // Number of boards a task handles without splitting further
+        private static final int GRAIN = 16;
+
+        private final ThreadLocal<DifficultyGrader> graders;
+        private final int[][][] grids;
+        private final int[] status;
+        private final String[] results;
+        private final int from;
+        private final int to;
+
+        Range(ThreadLocal<DifficultyGrader> graders, int[][][] grids, int[] status, String[] results, int from, int to) {
+            this.graders = graders;
+            this.grids = grids;
+            this.status = status;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Range(graders, grids, status, results, from, mid),
+                        new Range(graders, grids, status, results, mid, to));
+                return;
+            }
+            DifficultyGrader grader = graders.get();
+            for (int k = from; k < to; k++)
+                results[k] = status[k] == BoardReader.OK ? grader.grade(grids[k]).toString()
+                        : BoardReader.describe(status[k]);
+        }
+    }
+
+    /**
+     * The main method to grade a corpus from the command line, on all cores.
+     * The corpus uses the BatchSolver layout; one line per board is written to grades-<corpus-file>:
+     * the rating, the score and the applications of every technique in ladder order.
+     * Usage: java [-Dsudoku.variant=diagonal] DifficultyGrader <N> <corpus-file>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Please give the dimension N and a <corpus-file>");
+            return;
+        }
+        int N;
+        try {
+            N = Integer.parseInt(args[0]);
+            if (N != 4 && N != 6 && N != 8 && N != 9 && N != 12 && N != 16 && N != 25) {
+                System.out.println("The allowed value for N is 4, 6, 8, 9, 12, 16 or 25!");
+                return;
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Please give the dimension N and a <corpus-file>");
+            return;
+        }
+        Geometry geometry = Geometry.forName(System.getProperty("sudoku.variant", "standard"), N);
+        if (geometry == null) {
+            System.out.println("Unknown variant " + System.getProperty("sudoku.variant") + "! Please choose standard or diagonal.");
+            return;
+        }
+
+        // One grader per worker thread; all of them are kept to sum their counters at the end
+        Queue<DifficultyGrader> all = new ConcurrentLinkedQueue<>();
+        ThreadLocal<DifficultyGrader> graders = ThreadLocal.withInitial(() -> {
+            DifficultyGrader grader = new DifficultyGrader(geometry);
+            all.add(grader);
+            return grader;
+        });
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        int chunk = Math.max(1024, (1 << 16) * 81 / (N * N));
+        int[][][] grids = new int[chunk][N][N];
+        int[] status = new int[chunk];
+        String[] results = new String[chunk];
+        String filePath = "grades-" + Paths.get(args[1]).getFileName();
+        long[] ratings = new long[RATINGS.length + 1];
+        long total = 0;
+        long start = System.nanoTime();
+        try (BoardReader reader = new BoardReader(Paths.get(args[1]), geometry);
+             BufferedWriter out = Files.newBufferedWriter(Paths.get(filePath), StandardCharsets.US_ASCII)) {
+            int count;
+            do {
+                // Parse a chunk, grade it in parallel, then write its results in order
+                count = 0;
+                while (count < chunk && (status[count] = reader.next(grids[count])) != BoardReader.END_OF_INPUT)
+                    count++;
+                pool.invoke(new Range(graders, grids, status, results, 0, count));
+                for (int k = 0; k < count; k++) {
+                    out.write(results[k]);
+                    out.newLine();
+                    ratings[rank(results[k])]++;
+                }
+                total += count;
+            } while (count == chunk);
+        } catch (NoSuchFileException e) {
+            System.out.println("File " + args[1] + " not found");
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        double seconds = elapsed / 1e9;
+        System.out.printf("%d boards in %.3f s (%.0f boards/s) on %d threads%n",
+                total, seconds, total / seconds, pool.getParallelism());
+        for (int r = 0; r < RATINGS.length; r++)
+            System.out.printf("  %-10s %10d%n", RATINGS[r], ratings[r]);
+        if (ratings[RATINGS.length] > 0)
+            System.out.printf("  %-10s %10d%n", "unreadable", ratings[RATINGS.length]);
+
+        long[] calls = new long[TECHNIQUES], applications = new long[TECHNIQUES], nanos = new long[TECHNIQUES];
+        for (DifficultyGrader grader : all)
+            for (int t = 0; t < TECHNIQUES; t++) {
+                calls[t] += grader.calls[t];
+                applications[t] += grader.applications[t];
+                nanos[t] += grader.nanos[t];
+            }
+        System.out.printf("  %-18s %12s %12s %10s %10s%n", "technique", "calls", "applied", "ms", "ns/call");
+        for (int t = 0; t < TECHNIQUES; t++)
+            System.out.printf("  %-18s %12d %12d %10.1f %10.0f%n", NAMES[t], calls[t], applications[t],
+                    nanos[t] / 1e6, calls[t] == 0 ? 0.0 : (double) nanos[t] / calls[t]);
+        System.out.println("Grades written to " + filePath);
+        pool.shutdown();
+    }
+
+    // Index of the rating of a result line in RATINGS, or RATINGS.length for a board that was not read
+    private static int rank(String result) {
+        for (int r = 0; r < RATINGS.length; r++)
+            if (result.startsWith(RATINGS[r] + " "))
+                return r;
+        return RATINGS.length;
+    }
+}
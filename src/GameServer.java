@@ -0,0 +1,210 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The GameServer class hosts many Sudoku games in one process over local TCP connections.
+ * The game file is read and validated once; every connection gets its own Board copied from it and runs
+ * the Sudoku game loop with its own Scanner and output stream, so sessions share no game state.
+ * A session ends when its game is saved or completed, or when the client disconnects.
+ * Saving writes out-session-<id>-<game-file> in the working directory.
+ */
+public class GameServer {
+    // Pending connections the operating system may queue while sessions are being started
+    private static final int BACKLOG = 4096;
+
+    // Size of the output buffer of a session; a 25x25 frame and the instructions fit in one flush
+    private static final int OUTPUT_BUFFER = 8192;
+
+    // Pause after a failed accept, doubled on every further failure up to the maximum
+    private static final long ACCEPT_BACKOFF_MS = 10;
+    private static final long MAX_ACCEPT_BACKOFF_MS = 1000;
+
+    private final int N;
+    private final Board template;
+    private final String gameFile;
+    private final ServerSocket server;
+    private final ExecutorService sessions;
+
+    // Session counters
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong finished = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * Constructor to serve a loaded board.
+     * template The board every session starts from; it is only read.
+     * port The TCP port to listen on, or 0 for any free port.
+     */
+    public GameServer(Board template, int port) throws IOException {
+        this.N = template.N;
+        this.template = template;
+        this.gameFile = Paths.get(template.getGameFile()).getFileName().toString();
+        this.server = new ServerSocket(port, BACKLOG);
+        this.sessions = newSessionExecutor();
+    }
+
+    /**
+     * Creates an executor that runs every task on its own virtual thread when the JVM provides them
+     * (Java 21 and later), or on a cached pool of platform threads otherwise.
+     */
+    static ExecutorService newSessionExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    /**
+     * Checks if sessions run on virtual threads.
+     */
+    static boolean hasVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Accepts connections and starts a session for each one until close is called.
+     * When accept fails, e.g. because the process is out of file descriptors, the error is reported on
+     * standard error and accepting is retried after a pause, so that sessions can end and free some.
+     */
+    public void serve() {
+        long backoff = ACCEPT_BACKOFF_MS;
+        while (!server.isClosed()) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                // Thrown by accept when the server is closed
+                if (server.isClosed())
+                    break;
+                System.err.println("Error: accept failed (" + e.getMessage() + "), retrying in " + backoff + " ms");
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(2 * backoff, MAX_ACCEPT_BACKOFF_MS);
+                continue;
+            }
+            backoff = ACCEPT_BACKOFF_MS;
+            long id = started.incrementAndGet();
+            sessions.execute(() -> runSession(id, socket));
+        }
+    }
+
+    /**
+     * Plays one game over a connection.
+     * id The number of the session, used to name its saved game.
+     * socket The connection of the player.
+     */
+    private void runSession(long id, Socket socket) {
+        active.incrementAndGet();
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            PrintStream out = new PrintStream(new BufferedOutputStream(socket.getOutputStream(), OUTPUT_BUFFER),
+                    false, StandardCharsets.US_ASCII);
+            Scanner in = new Scanner(new BufferedReader(
+                    new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)));
+
+            Board b = new Board(template.geometry);
+            b.setGameFile("session-" + id + "-" + gameFile);
+            b.copyFrom(template);
+            b.startJournal();
+            b.setOutput(out);
+            new Sudoku(in, out).resume(N, b);
+            out.flush();
+        } catch (NoSuchElementException | IOException e) {
+            // The player disconnected before saving or completing the game
+        } finally {
+            active.decrementAndGet();
+            finished.incrementAndGet();
+        }
+    }
+
+    public long getStarted() {
+        return started.get();
+    }
+
+    public long getFinished() {
+        return finished.get();
+    }
+
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * Stops accepting connections and interrupts the running sessions.
+     */
+    public void close() throws IOException {
+        server.close();
+        sessions.shutdownNow();
+    }
+
+    /**
+     * The main method to serve a game file.
+     * Usage: java GameServer <N> <game-file> [port]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && args.length != 3) {
+            System.out.println("Please give the dimension N, a <game-file> and an optional port");
+            return;
+        }
+        int N;
+        int port = 7777;
+        try {
+            N = Integer.parseInt(args[0]);
+            if (args.length == 3)
+                port = Integer.parseInt(args[2]);
+        } catch (NumberFormatException e) {
+            System.out.println("Please give the dimension N, a <game-file> and an optional port");
+            return;
+        }
+        if (N != 4 && N != 6 && N != 8 && N != 9 && N != 12 && N != 16 && N != 25) {
+            System.out.println("The allowed value for N is 4, 6, 8, 9, 12, 16 or 25!");
+            return;
+        }
+        Geometry geometry = Geometry.forName(System.getProperty("sudoku.variant", "standard"), N);
+        if (geometry == null) {
+            System.out.println("Unknown variant " + System.getProperty("sudoku.variant") + "! Please choose standard or diagonal.");
+            return;
+        }
+
+        // Read and validate the game once; an invalid file stops the server before it starts
+        Board.filename = args[1];
+        Board template = new Board(geometry);
+        template.readBoard();
+
+        GameServer gameServer = new GameServer(template, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                System.out.println("Sessions served: " + gameServer.getFinished())));
+        System.out.println("Serving " + args[1] + " on port " + gameServer.getPort() + " with "
+                + (hasVirtualThreads() ? "virtual threads" : "a cached thread pool"));
+        gameServer.serve();
+    }
+}
@@ -0,0 +1,215 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The Geometry class describes the constraint groups (units) of a kind of Sudoku board: which cells
+ * must hold different values. The standard geometry has rows, columns and rectangular boxes (3x3 for
+ * N = 9, 2x3 for N = 6, 3x4 for N = 12); variants add units (the two diagonals of diagonal Sudoku) or
+ * replace the boxes by irregular regions (jigsaw Sudoku).
+ * All tables are flat int arrays built once per kind of board, and are shared by every board of that
+ * kind; they must not be modified. Cells are numbered row-major from 0, units are numbered rows first
+ * (0..N-1), then columns (N..2N-1), then boxes or regions (2N..3N-1), then any extra units.
+ */
+public final class Geometry {
+    // Kinds of units, in the order their rules are reported
+    public static final int ROW = 0;
+    public static final int COLUMN = 1;
+    public static final int BOX = 2;
+    public static final int DIAGONAL = 3;
+
+    // Geometries built so far, keyed by name
+    private static final Map<String, Geometry> SHARED = new ConcurrentHashMap<>();
+
+    // The size of the board and its number of cells
+    public final int N;
+    public final int cells;
+
+    // Height and width of the boxes; both N for jigsaw regions, which have no box lines to draw
+    public final int boxRows;
+    public final int boxColumns;
+
+    // Number of units and the kind of every unit
+    public final int unitCount;
+    final int[] unitKind;
+
+    // Cells of unit u in unitCells[u * N .. u * N + N)
+    final int[] unitCells;
+
+    // Units of cell c in cellUnits[cellUnitStart[c] .. cellUnitStart[c + 1]), ordered by kind
+    final int[] cellUnitStart;
+    final int[] cellUnits;
+
+    // Cells sharing a unit with cell c in peers[peerStart[c] .. peerStart[c + 1]), excluding c
+    final int[] peerStart;
+    final int[] peers;
+
+    // Box or region of every cell, from 0 to N-1
+    final int[] boxOf;
+
+    private final String name;
+
+    /**
+     * Returns the standard geometry of size N, with the most square boxes that tile the board:
+     * boxRows is the largest divisor of N that is at most sqrt(N).
+     */
+    public static Geometry standard(int N) {
+        int boxRows = (int) Math.sqrt(N);
+        while (N % boxRows != 0)
+            boxRows--;
+        return rectangular(N, boxRows, N / boxRows);
+    }
+
+    /**
+     * Returns the geometry of size N with boxes of boxRows x boxColumns cells.
+     */
+    public static Geometry rectangular(int N, int boxRows, int boxColumns) {
+        if (boxRows * boxColumns != N)
+            throw new IllegalArgumentException("Boxes of " + boxRows + "x" + boxColumns + " do not tile a board of size " + N);
+        return SHARED.computeIfAbsent("standard-" + boxRows + "x" + boxColumns,
+                name -> new Geometry(name, N, boxRows, boxColumns, boxes(N, boxRows, boxColumns), false));
+    }
+
+    /**
+     * Returns the diagonal variant of the standard geometry of size N: both main diagonals are units too.
+     */
+    public static Geometry diagonal(int N) {
+        Geometry standard = standard(N);
+        return SHARED.computeIfAbsent("diagonal-" + standard.boxRows + "x" + standard.boxColumns,
+                name -> new Geometry(name, N, standard.boxRows, standard.boxColumns, standard.boxOf, true));
+    }
+
+    /**
+     * Returns a jigsaw geometry, whose boxes are irregular regions.
+     * regions The region of every cell in row-major order, from 0 to N-1; every region has N cells.
+     */
+    public static Geometry jigsaw(int N, int[] regions) {
+        if (regions.length != N * N)
+            throw new IllegalArgumentException("A jigsaw board of size " + N + " needs " + N * N + " regions");
+        int[] size = new int[N];
+        for (int region : regions) {
+            if (region < 0 || region >= N || ++size[region] > N)
+                throw new IllegalArgumentException("Every region of a jigsaw board must have " + N + " cells");
+        }
+        return new Geometry("jigsaw-" + N, N, N, N, regions.clone(), false);
+    }
+
+    /**
+     * Returns a geometry by variant name: "standard", "diagonal", or null if the name is unknown.
+     */
+    public static Geometry forName(String variant, int N) {
+        switch (variant) {
+            case "standard":
+                return standard(N);
+            case "diagonal":
+                return diagonal(N);
+            default:
+                return null;
+        }
+    }
+
+    // Box of every cell for rectangular boxes; boxes are numbered row-major
+    private static int[] boxes(int N, int boxRows, int boxColumns) {
+        int[] boxOf = new int[N * N];
+        int perBand = N / boxColumns;
+        for (int cell = 0; cell < N * N; cell++)
+            boxOf[cell] = (cell / N / boxRows) * perBand + cell % N / boxColumns;
+        return boxOf;
+    }
+
+    private Geometry(String name, int N, int boxRows, int boxColumns, int[] boxOf, boolean diagonals) {
+        this.name = name;
+        this.N = N;
+        this.cells = N * N;
+        this.boxRows = boxRows;
+        this.boxColumns = boxColumns;
+        this.boxOf = boxOf;
+        this.unitCount = diagonals ? 3 * N + 2 : 3 * N;
+
+        unitKind = new int[unitCount];
+        unitCells = new int[unitCount * N];
+        int[] filled = new int[unitCount];
+        for (int cell = 0; cell < cells; cell++) {
+            int i = cell / N, j = cell % N;
+            add(filled, i, ROW, cell);
+            add(filled, N + j, COLUMN, cell);
+            add(filled, 2 * N + boxOf[cell], BOX, cell);
+            if (diagonals && i == j)
+                add(filled, 3 * N, DIAGONAL, cell);
+            if (diagonals && i + j == N - 1)
+                add(filled, 3 * N + 1, DIAGONAL, cell);
+        }
+
+        // Units of every cell, in unit order, which is also the order of their kinds
+        cellUnitStart = new int[cells + 1];
+        for (int u = 0; u < unitCount; u++)
+            for (int k = 0; k < N; k++)
+                cellUnitStart[unitCells[u * N + k] + 1]++;
+        for (int cell = 0; cell < cells; cell++)
+            cellUnitStart[cell + 1] += cellUnitStart[cell];
+        cellUnits = new int[cellUnitStart[cells]];
+        int[] next = Arrays.copyOf(cellUnitStart, cells);
+        for (int u = 0; u < unitCount; u++)
+            for (int k = 0; k < N; k++)
+                cellUnits[next[unitCells[u * N + k]]++] = u;
+
+        // Peers of every cell, each listed once
+        peerStart = new int[cells + 1];
+        int[] list = new int[cellUnits.length * N];
+        boolean[] seen = new boolean[cells];
+        int count = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            int first = count;
+            for (int k = cellUnitStart[cell]; k < cellUnitStart[cell + 1]; k++)
+                for (int m = cellUnits[k] * N, end = m + N; m < end; m++) {
+                    int peer = unitCells[m];
+                    if (peer != cell && !seen[peer]) {
+                        seen[peer] = true;
+                        list[count++] = peer;
+                    }
+                }
+            for (int k = first; k < count; k++)
+                seen[list[k]] = false;
+            peerStart[cell + 1] = count;
+        }
+        peers = Arrays.copyOf(list, count);
+    }
+
+    private void add(int[] filled, int unit, int kind, int cell) {
+        unitKind[unit] = kind;
+        unitCells[unit * N + filled[unit]++] = cell;
+    }
+
+    /**
+     * Returns the kind of a unit: ROW, COLUMN, BOX or DIAGONAL.
+     */
+    public int kindOf(int unit) {
+        return unitKind[unit];
+    }
+
+    /**
+     * Returns the k-th cell of a unit, k from 0 to N-1.
+     */
+    public int cellOf(int unit, int k) {
+        return unitCells[unit * N + k];
+    }
+
+    /**
+     * Returns the box or jigsaw region of a cell, from 0 to N-1.
+     */
+    public int boxOf(int cell) {
+        return boxOf[cell];
+    }
+
+    /**
+     * Checks if the units are only rows, columns and boxRows x boxColumns rectangles, without variant rules.
+     */
+    public boolean isStandard() {
+        return name.startsWith("standard-");
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,229 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The LoadDriver class simulates many players of a GameServer and measures its throughput and latency.
+ * Every client connects, waits for the board and the "> " prompt, then sends random i,j=val commands
+ * one at a time; the latency of a command is the time until the next prompt arrives.
+ * Commands are never 0,0=0, so clients do not write saved games; a client stops early if it completes its game.
+ */
+public class LoadDriver {
+    // Size of the buffer each client reads the server output into
+    private static final int READ_BUFFER = 8192;
+
+    // Connection attempts before a client is counted as failed, e.g. when the accept backlog is full
+    private static final int CONNECT_ATTEMPTS = 10;
+
+    private final String host;
+    private final int port;
+    private final int N;
+    private final int movesPerClient;
+
+    // Latency of every command in nanoseconds; client k owns latencies[k * movesPerClient, (k + 1) * movesPerClient)
+    private final long[] latencies;
+    private final int[] recorded;
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    /**
+     * Constructor to drive a server.
+     * host The host of the GameServer.
+     * port The port of the GameServer.
+     * N The size of the served board.
+     * clients The number of clients to simulate.
+     * movesPerClient The number of commands every client sends.
+     */
+    public LoadDriver(String host, int port, int N, int clients, int movesPerClient) {
+        this.host = host;
+        this.port = port;
+        this.N = N;
+        this.movesPerClient = movesPerClient;
+        this.latencies = new long[clients * movesPerClient];
+        this.recorded = new int[clients];
+    }
+
+    /**
+     * Runs every client and waits for all of them to finish.
+     * executor The executor the clients run on.
+     * seed The seed from which every client derives its commands.
+     */
+    public void run(ExecutorService executor, long seed) throws InterruptedException {
+        int clients = recorded.length;
+        CountDownLatch done = new CountDownLatch(clients);
+        SplittableRandom root = new SplittableRandom(seed);
+        for (int k = 0; k < clients; k++) {
+            int client = k;
+            SplittableRandom random = root.split();
+            executor.execute(() -> {
+                try {
+                    runClient(client, random);
+                } catch (IOException e) {
+                    failed.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+    }
+
+    /**
+     * Plays one client: connects, then sends commands and waits for the prompt after each one.
+     */
+    private void runClient(int client, SplittableRandom random) throws IOException {
+        byte[] buffer = new byte[READ_BUFFER];
+        byte[] command = new byte[16];
+        try (Socket socket = connect()) {
+            socket.setTcpNoDelay(true);
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            if (!awaitPrompt(in, buffer))
+                return;
+            int base = client * movesPerClient;
+            for (int m = 0; m < movesPerClient; m++) {
+                int length = command(command, 1 + random.nextInt(N), 1 + random.nextInt(N), random.nextInt(N + 1));
+                long start = System.nanoTime();
+                out.write(command, 0, length);
+                boolean prompted = awaitPrompt(in, buffer);
+                latencies[base + m] = System.nanoTime() - start;
+                recorded[client] = m + 1;
+                // The game was completed and the server closed the session
+                if (!prompted)
+                    return;
+            }
+        }
+    }
+
+    private Socket connect() throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return new Socket(host, port);
+            } catch (IOException e) {
+                if (attempt == CONNECT_ATTEMPTS)
+                    throw e;
+                try {
+                    Thread.sleep(10L * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the server output up to the next "> " prompt; the board and messages never contain one.
+     * returns true if a prompt was read, false if the server closed the connection first.
+     */
+    private static boolean awaitPrompt(InputStream in, byte[] buffer) throws IOException {
+        int previous = 0;
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            for (int k = 0; k < read; k++) {
+                if (previous == '>' && buffer[k] == ' ')
+                    return true;
+                previous = buffer[k];
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the command i,j=val followed by a newline into dest.
+     * returns the length of the command.
+     */
+    private static int command(byte[] dest, int i, int j, int val) {
+        int pos = digits(dest, 0, i);
+        dest[pos++] = ',';
+        pos = digits(dest, pos, j);
+        dest[pos++] = '=';
+        pos = digits(dest, pos, val);
+        dest[pos++] = '\n';
+        return pos;
+    }
+
+    private static int digits(byte[] dest, int pos, int n) {
+        if (n >= 10)
+            dest[pos++] = (byte) ('0' + n / 10);
+        dest[pos++] = (byte) ('0' + n % 10);
+        return pos;
+    }
+
+    /**
+     * Prints the number of commands, the throughput and the latency percentiles.
+     * seconds The wall-clock time of the run.
+     */
+    public void printSummary(double seconds) {
+        int count = 0;
+        for (int n : recorded)
+            count += n;
+        long[] sorted = new long[count];
+        int pos = 0;
+        for (int k = 0; k < recorded.length; k++) {
+            System.arraycopy(latencies, k * movesPerClient, sorted, pos, recorded[k]);
+            pos += recorded[k];
+        }
+        Arrays.sort(sorted);
+
+        System.out.printf("%d clients (%d failed), %d commands in %.3f s (%.0f commands/s)%n",
+                recorded.length, failed.get(), count, seconds, count / seconds);
+        if (count == 0)
+            return;
+        System.out.printf("Latency (us): p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), sorted[count - 1] / 1e3);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e3;
+    }
+
+    /**
+     * The main method to load a running GameServer.
+     * Usage: java LoadDriver <N> <clients> <moves-per-client> [port] [concurrency] [host]
+     * Without a concurrency limit every client runs at once, on virtual threads when the JVM provides them.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 3 || args.length > 6) {
+            System.out.println("Please give N, the number of clients, the moves per client and an optional port, concurrency and host");
+            return;
+        }
+        int N, clients, moves, concurrency;
+        int port = 7777;
+        String host = args.length > 5 ? args[5] : "localhost";
+        try {
+            N = Integer.parseInt(args[0]);
+            clients = Integer.parseInt(args[1]);
+            moves = Integer.parseInt(args[2]);
+            if (args.length > 3)
+                port = Integer.parseInt(args[3]);
+            concurrency = args.length > 4 ? Integer.parseInt(args[4]) : clients;
+        } catch (NumberFormatException e) {
+            System.out.println("Please give N, the number of clients, the moves per client and an optional port, concurrency and host");
+            return;
+        }
+        if (N != 4 && N != 6 && N != 8 && N != 9 && N != 12 && N != 16 && N != 25) {
+            System.out.println("The allowed value for N is 4, 6, 8, 9, 12, 16 or 25!");
+            return;
+        }
+
+        LoadDriver driver = new LoadDriver(host, port, N, clients, moves);
+        ExecutorService executor = concurrency >= clients
+                ? GameServer.newSessionExecutor()
+                : Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        driver.run(executor, 2024);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        executor.shutdown();
+        driver.printSummary(seconds);
+    }
+}
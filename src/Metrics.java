@@ -0,0 +1,323 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The Metrics class collects latencies of the game operations and the work of the solvers.
+ * Instrumentation is off unless the JVM runs with -Dsudoku.metrics=true. ENABLED is a static final
+ * constant, so when it is off the JIT removes the timing code and an instrumented call costs nothing.
+ * When it is on, every Timer keeps a lock-free log-linear histogram (in the style of HdrHistogram:
+ * 16 sub-buckets per power of two, so quantiles are within 1/16 of the true value) and every Counter a
+ * LongAdder. They are registered as MXBeans under sudoku:type=Timer and sudoku:type=Counter, printed
+ * to System.err every -Dsudoku.metrics.dump=<seconds>, and printed once more when the JVM exits.
+ * Usage: long start = Metrics.start(); ... Metrics.UPDATE_BOARD.stop(start);
+ */
+public final class Metrics {
+    public static final boolean ENABLED = Boolean.getBoolean("sudoku.metrics");
+
+    // Every timer and counter, in the order they are dumped
+    private static final List<Timer> TIMERS = new ArrayList<>();
+    private static final List<Counter> COUNTERS = new ArrayList<>();
+
+    // The game operations
+    public static final Timer PARSE_INPUT = new Timer("parseInput");
+    public static final Timer IS_VALID_MOVE = new Timer("isValidMove");
+    public static final Timer UPDATE_BOARD = new Timer("updateBoard");
+    public static final Timer DISPLAY_BOARD = new Timer("displayBoard");
+    public static final Timer READ_BOARD = new Timer("readBoard");
+    public static final Timer CHECK_VALIDITY = new Timer("checkValidity");
+    public static final Timer SAVE_BOARD = new Timer("saveBoard");
+
+    // Solver searches; the leaf searches of the parallel solver are counted as backtrack searches
+    public static final Timer SOLVE_BACKTRACK = new Timer("solve.backtrack");
+    public static final Timer SOLVE_DLX = new Timer("solve.dlx");
+    public static final Timer SOLVE_PARALLEL = new Timer("solve.parallel");
+    public static final Counter SEARCH_NODES = new Counter("searchNodes");
+
+    // Time the metrics started, for the dumps
+    private static final long STARTED = System.nanoTime();
+
+    static {
+        if (ENABLED)
+            install();
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the start time of an operation to pass to Timer.stop, or 0 when instrumentation is off.
+     */
+    public static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    // Registers the MXBeans, the periodic dump and the dump at exit
+    private static void install() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (Timer timer : TIMERS)
+                server.registerMBean(timer, new ObjectName("sudoku:type=Timer,name=" + timer.name));
+            for (Counter counter : COUNTERS)
+                server.registerMBean(counter, new ObjectName("sudoku:type=Counter,name=" + counter.name));
+        } catch (JMException e) {
+            System.err.println("Error: could not register the metrics MXBeans: " + e.getMessage());
+        }
+
+        long period = Long.getLong("sudoku.metrics.dump", 0);
+        if (period > 0) {
+            ScheduledExecutorService dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "metrics-dump");
+                thread.setDaemon(true);
+                return thread;
+            });
+            dumper.scheduleAtFixedRate(() -> dump(System.err), period, period, TimeUnit.SECONDS);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> dump(System.err), "metrics-exit"));
+    }
+
+    /**
+     * Prints every timer and counter as a table: count, mean, p50, p99 and max in microseconds.
+     * out The stream to print to.
+     */
+    public static void dump(PrintStream out) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Metrics after %.1f s%n", (System.nanoTime() - STARTED) / 1e9));
+        sb.append(String.format("  %-16s %10s %10s %10s %10s %10s%n", "operation", "count", "mean us", "p50 us", "p99 us", "max us"));
+        for (Timer timer : TIMERS) {
+            long count = timer.getCount();
+            if (count == 0)
+                continue;
+            sb.append(String.format("  %-16s %10d %10.1f %10.1f %10.1f %10.1f%n", timer.name, count, timer.getMeanMicros(),
+                    timer.getP50Micros(), timer.getP99Micros(), timer.getMaxMicros()));
+        }
+        for (Counter counter : COUNTERS)
+            sb.append(String.format("  %-16s %10d%n", counter.name, counter.getCount()));
+        out.print(sb);
+        out.flush();
+    }
+
+    // Histogram layout: values below 16 have a bucket each, larger ones 16 buckets per power of two
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) Math.max(value, 0);
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    // Largest value that falls into a bucket
+    private static long highestOf(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    /**
+     * The attributes of a Timer as seen over JMX.
+     */
+    public interface TimerMXBean {
+        long getCount();
+
+        double getMeanMicros();
+
+        double getP50Micros();
+
+        double getP90Micros();
+
+        double getP99Micros();
+
+        double getP999Micros();
+
+        double getMaxMicros();
+
+        void reset();
+    }
+
+    /**
+     * The attributes of a Counter as seen over JMX.
+     */
+    public interface CounterMXBean {
+        long getCount();
+
+        void reset();
+    }
+
+    /**
+     * A latency histogram in nanoseconds that always records, e.g. for a harness that reports its own
+     * latencies. Recording is lock-free and safe from any thread.
+     */
+    public static class Histogram {
+        private final AtomicLongArray buckets;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        public Histogram() {
+            this(true);
+        }
+
+        // A histogram that does not record has no buckets
+        private Histogram(boolean recording) {
+            this.buckets = recording ? new AtomicLongArray(BUCKETS) : null;
+        }
+
+        /**
+         * Records one latency in nanoseconds.
+         */
+        public void record(long nanos) {
+            buckets.incrementAndGet(bucketOf(nanos));
+            count.increment();
+            total.add(nanos);
+            if (nanos > max.get())
+                max.accumulateAndGet(nanos, Math::max);
+        }
+
+        // A copy of the buckets; concurrent recordings may or may not be included
+        private long[] snapshot() {
+            long[] copy = new long[BUCKETS];
+            if (buckets != null)
+                for (int b = 0; b < BUCKETS; b++)
+                    copy[b] = buckets.get(b);
+            return copy;
+        }
+
+        // The value below which a fraction q of the count falls: the upper bound of its bucket, at most the max
+        private long quantile(long[] buckets, long count, double q) {
+            long rank = Math.max(1, (long) Math.ceil(q * count));
+            long seen = 0;
+            for (int b = 0; b < buckets.length; b++) {
+                seen += buckets[b];
+                if (seen >= rank)
+                    return Math.min(highestOf(b), max.get());
+            }
+            return 0;
+        }
+
+        /**
+         * Returns the latency below which a fraction q of the recordings fall, in microseconds.
+         */
+        public double getQuantileMicros(double q) {
+            long[] copy = snapshot();
+            long n = 0;
+            for (long c : copy)
+                n += c;
+            return n == 0 ? 0 : quantile(copy, n, q) / 1e3;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getMeanMicros() {
+            long n = count.sum();
+            return n == 0 ? 0 : total.sum() / 1e3 / n;
+        }
+
+        public double getP50Micros() {
+            return getQuantileMicros(0.50);
+        }
+
+        public double getP90Micros() {
+            return getQuantileMicros(0.90);
+        }
+
+        public double getP99Micros() {
+            return getQuantileMicros(0.99);
+        }
+
+        public double getP999Micros() {
+            return getQuantileMicros(0.999);
+        }
+
+        public double getMaxMicros() {
+            return max.get() / 1e3;
+        }
+
+        public void reset() {
+            if (buckets != null)
+                for (int b = 0; b < BUCKETS; b++)
+                    buckets.set(b, 0);
+            count.reset();
+            total.reset();
+            max.set(0);
+        }
+    }
+
+    /**
+     * A histogram of one instrumented operation, which only records when instrumentation is on.
+     */
+    public static final class Timer extends Histogram implements TimerMXBean {
+        private final String name;
+
+        private Timer(String name) {
+            super(ENABLED);
+            this.name = name;
+            TIMERS.add(this);
+        }
+
+        /**
+         * Records the time since start, a value returned by Metrics.start; does nothing when instrumentation is off.
+         */
+        public void stop(long start) {
+            if (ENABLED)
+                super.record(System.nanoTime() - start);
+        }
+
+        /**
+         * Records one latency in nanoseconds; does nothing when instrumentation is off.
+         */
+        @Override
+        public void record(long nanos) {
+            if (ENABLED)
+                super.record(nanos);
+        }
+    }
+
+    /**
+     * A lock-free event counter, e.g. of search nodes.
+     */
+    public static final class Counter implements CounterMXBean {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+
+        private Counter(String name) {
+            this.name = name;
+            COUNTERS.add(this);
+        }
+
+        /**
+         * Adds n events; does nothing when instrumentation is off.
+         */
+        public void add(long n) {
+            if (ENABLED)
+                count.add(n);
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public void reset() {
+            count.reset();
+        }
+    }
+}
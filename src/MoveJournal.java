@@ -0,0 +1,246 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * The MoveJournal class records the moves applied to a Board so they can be undone, redone and replayed.
+ * Each move is one int packing the cell and its old and new value, appended to a growable array, so
+ * undo and redo are O(1) and never copy the board. Every SNAPSHOT_INTERVAL moves a copy of the tableau
+ * is kept; restoring a board starts from the nearest snapshot instead of replaying the whole game.
+ * A journal can be saved next to a game file and loaded back without parsing and validating that file.
+ */
+public class MoveJournal {
+    // Number of moves between two snapshots; bounds the replay needed to restore a board
+    public static final int SNAPSHOT_INTERVAL = 256;
+
+    // File header: "SDKJ" and the format version
+    private static final int MAGIC = 0x53444B4A;
+    private static final int VERSION = 1;
+
+    // Entry layout: cell index in bits 12 and up, old and new value + VALUE_OFFSET in 6 bits each
+    private static final int VALUE_OFFSET = 32;
+    private static final int VALUE_MASK = 0x3F;
+
+    // The size of the Sudoku board
+    private final int N;
+
+    // Recorded moves; entries[0, position) are applied and entries[position, size) can be redone
+    private int[] entries = new int[64];
+    private int size;
+    private int position;
+
+    // Flat copies of the tableau; snapshots[k] is the state after snapshotPositions[k] moves
+    private int[][] snapshots = new int[4][];
+    private int[] snapshotPositions = new int[4];
+    private int snapshotCount;
+
+    /**
+     * Constructor to start a journal on a board.
+     * tableau The N x N values the first move is applied to.
+     */
+    public MoveJournal(int[][] tableau) {
+        this.N = tableau.length;
+        snapshot(tableau);
+    }
+
+    private MoveJournal(int N) {
+        this.N = N;
+    }
+
+    /**
+     * Packs a move into a journal entry.
+     * cell The row-major index of the 0-based cell.
+     * oldValue The value of the cell before the move.
+     * newValue The value of the cell after the move.
+     */
+    public static int pack(int cell, int oldValue, int newValue) {
+        return cell << 12 | (oldValue + VALUE_OFFSET) << 6 | (newValue + VALUE_OFFSET);
+    }
+
+    public static int cell(int entry) {
+        return entry >>> 12;
+    }
+
+    public static int oldValue(int entry) {
+        return ((entry >>> 6) & VALUE_MASK) - VALUE_OFFSET;
+    }
+
+    public static int newValue(int entry) {
+        return (entry & VALUE_MASK) - VALUE_OFFSET;
+    }
+
+    /**
+     * Appends a move that was just applied, discarding the moves that could be redone.
+     * tableau The values after the move, copied when a snapshot is due.
+     */
+    public void record(int cell, int oldValue, int newValue, int[][] tableau) {
+        if (position < size) {
+            size = position;
+            // Snapshots after the current position belong to the discarded moves
+            while (snapshotPositions[snapshotCount - 1] > position)
+                snapshots[--snapshotCount] = null;
+        }
+        if (size == entries.length)
+            entries = Arrays.copyOf(entries, size * 2);
+        entries[size++] = pack(cell, oldValue, newValue);
+        position = size;
+        if (position % SNAPSHOT_INTERVAL == 0)
+            snapshot(tableau);
+    }
+
+    private void snapshot(int[][] tableau) {
+        if (snapshotCount == snapshots.length) {
+            snapshots = Arrays.copyOf(snapshots, snapshotCount * 2);
+            snapshotPositions = Arrays.copyOf(snapshotPositions, snapshotCount * 2);
+        }
+        int[] flat = new int[N * N];
+        for (int i = 0; i < N; i++)
+            System.arraycopy(tableau[i], 0, flat, i * N, N);
+        snapshots[snapshotCount] = flat;
+        snapshotPositions[snapshotCount++] = position;
+    }
+
+    public boolean canUndo() {
+        return position > 0;
+    }
+
+    public boolean canRedo() {
+        return position < size;
+    }
+
+    /**
+     * Steps back over the last applied move; the caller restores its old value.
+     * returns the entry of the move.
+     */
+    public int undo() {
+        return entries[--position];
+    }
+
+    /**
+     * Steps forward over the next undone move; the caller applies its new value.
+     * returns the entry of the move.
+     */
+    public int redo() {
+        return entries[position++];
+    }
+
+    /**
+     * Returns the number of applied moves.
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Returns the number of recorded moves, including those that can be redone.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Writes the state after the applied moves into a tableau: the nearest snapshot, then the moves after it.
+     * tableau The N x N array to fill.
+     */
+    public void restore(int[][] tableau) {
+        int k = snapshotCount - 1;
+        while (snapshotPositions[k] > position)
+            k--;
+        int[] flat = snapshots[k];
+        for (int i = 0; i < N; i++)
+            System.arraycopy(flat, i * N, tableau[i], 0, N);
+        for (int m = snapshotPositions[k]; m < position; m++) {
+            int cell = cell(entries[m]);
+            tableau[cell / N][cell % N] = newValue(entries[m]);
+        }
+    }
+
+    /**
+     * Returns the file a journal of the game file is saved to.
+     */
+    public static Path journalFile(Path gameFile) {
+        return gameFile.resolveSibling(gameFile.getFileName() + ".journal");
+    }
+
+    /**
+     * Saves the journal next to a game file that was just written.
+     * The size and modification time of the game file are recorded, so a stale journal is not loaded.
+     * gameFile The game file holding the current state of the board.
+     */
+    public void save(Path gameFile) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(journalFile(gameFile))))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(N);
+            out.writeLong(Files.size(gameFile));
+            out.writeLong(Files.getLastModifiedTime(gameFile).toMillis());
+            out.writeInt(size);
+            out.writeInt(position);
+            out.writeInt(snapshotCount);
+            for (int k = 0; k < snapshotCount; k++) {
+                out.writeInt(snapshotPositions[k]);
+                // Values fit in a byte for every supported N
+                for (int value : snapshots[k])
+                    out.writeByte(value);
+            }
+            for (int m = 0; m < size; m++)
+                out.writeInt(entries[m]);
+        }
+    }
+
+    /**
+     * Loads the journal saved next to a game file.
+     * gameFile The game file the journal was saved with.
+     * N The size of the Sudoku board.
+     * returns the journal, or null if there is none, it is corrupt or the game file changed since.
+     */
+    public static MoveJournal load(Path gameFile, int N) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(journalFile(gameFile))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || in.readInt() != N)
+                return null;
+            if (in.readLong() != Files.size(gameFile)
+                    || in.readLong() != Files.getLastModifiedTime(gameFile).toMillis())
+                return null;
+            MoveJournal journal = new MoveJournal(N);
+            journal.size = in.readInt();
+            journal.position = in.readInt();
+            journal.snapshotCount = in.readInt();
+            if (journal.size < 0 || journal.position < 0 || journal.position > journal.size
+                    || journal.snapshotCount < 1)
+                return null;
+            journal.snapshots = new int[journal.snapshotCount][];
+            journal.snapshotPositions = new int[journal.snapshotCount];
+            for (int k = 0; k < journal.snapshotCount; k++) {
+                int snapshotPosition = in.readInt();
+                if (snapshotPosition > journal.size || (k > 0 && snapshotPosition <= journal.snapshotPositions[k - 1]))
+                    return null;
+                journal.snapshotPositions[k] = snapshotPosition;
+                int[] flat = new int[N * N];
+                for (int c = 0; c < flat.length; c++)
+                    if (Math.abs(flat[c] = in.readByte()) > N)
+                        return null;
+                journal.snapshots[k] = flat;
+            }
+            if (journal.snapshotPositions[0] != 0)
+                return null;
+            journal.entries = new int[Math.max(journal.size, 64)];
+            for (int m = 0; m < journal.size; m++) {
+                int entry = in.readInt();
+                if (cell(entry) >= N * N || Math.abs(oldValue(entry)) > N || Math.abs(newValue(entry)) > N)
+                    return null;
+                journal.entries[m] = entry;
+            }
+            return journal;
+        } catch (IOException e) {
+            // No journal, or a truncated or unreadable one; the game file is read instead
+            return null;
+        }
+    }
+}
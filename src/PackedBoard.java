@@ -0,0 +1,188 @@
+import java.util.Arrays;
+
+/**
+ * The PackedBoard class stores boards in flat byte arrays instead of int[][] tables.
+ * A board is one record of N*N bytes holding the absolute cell values in row-major order (0 for empty
+ * cells), followed by a given bitmap with one bit per cell, set when the cell is a given. A 9x9 board
+ * takes 92 bytes, so copying one is a single System.arraycopy and no row arrays are chased.
+ * A PackedBoard is a view on one record of a byte array. The array may hold many boards (an arena
+ * created with arena), and at moves the view between them, so millions of boards cost no per-board
+ * objects. The accessors use 0-based rows and columns and the Board.readBoard encoding (negative
+ * values for givens), and load/store convert from and to int[][] tables for the existing callers.
+ */
+public final class PackedBoard {
+    // The size of the boards, their number of cells and the size of one record in bytes
+    public final int N;
+    private final int cells;
+    private final int recordSize;
+
+    // The array holding the records and the offset of the record this view is on
+    private final byte[] data;
+    private int base;
+
+    /**
+     * Constructor to create a board of size N with its own record, all cells empty.
+     */
+    public PackedBoard(int N) {
+        this(N, new byte[recordSize(N)]);
+    }
+
+    private PackedBoard(int N, byte[] data) {
+        this.N = N;
+        this.cells = N * N;
+        this.recordSize = recordSize(N);
+        this.data = data;
+    }
+
+    /**
+     * Creates an arena of count empty boards of size N in a single byte array, viewed at board 0.
+     */
+    public static PackedBoard arena(int N, int count) {
+        long bytes = (long) recordSize(N) * count;
+        if (bytes > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException(count + " boards of size " + N + " do not fit in one array");
+        return new PackedBoard(N, new byte[(int) bytes]);
+    }
+
+    /**
+     * Returns the size in bytes of one board of size N: the values and the given bitmap.
+     */
+    public static int recordSize(int N) {
+        return N * N + (N * N + 7) / 8;
+    }
+
+    /**
+     * Moves this view to board #index of its array.
+     * returns this view, so accessors can be chained.
+     */
+    public PackedBoard at(int index) {
+        if (index < 0 || index >= capacity())
+            throw new IndexOutOfBoundsException("Board " + index + " of " + capacity());
+        base = index * recordSize;
+        return this;
+    }
+
+    /**
+     * Returns a new view on the same array, e.g. for another thread working on the same arena.
+     */
+    public PackedBoard view() {
+        PackedBoard view = new PackedBoard(N, data);
+        view.base = base;
+        return view;
+    }
+
+    // The array holding the records, for bulk readers such as BulkValidator
+    byte[] array() {
+        return data;
+    }
+
+    /**
+     * Returns the number of boards the array of this view holds.
+     */
+    public int capacity() {
+        return data.length / recordSize;
+    }
+
+    /**
+     * Returns cell (row, column) in the readBoard encoding: negative for a given, 0 when empty.
+     */
+    public int get(int row, int column) {
+        int k = row * N + column;
+        int value = data[base + k];
+        return isGiven(k) ? -value : value;
+    }
+
+    /**
+     * Returns the absolute value of cell (row, column), 0 when empty.
+     */
+    public int value(int row, int column) {
+        return data[base + row * N + column];
+    }
+
+    /**
+     * Checks if cell (row, column) holds a given.
+     */
+    public boolean isGiven(int row, int column) {
+        return isGiven(row * N + column);
+    }
+
+    private boolean isGiven(int k) {
+        return (data[base + cells + (k >>> 3)] & (1 << (k & 7))) != 0;
+    }
+
+    /**
+     * Sets cell (row, column) in the readBoard encoding: a negative value is stored as a given.
+     */
+    public void set(int row, int column, int value) {
+        int k = row * N + column;
+        data[base + k] = (byte) Math.abs(value);
+        int index = base + cells + (k >>> 3);
+        if (value < 0)
+            data[index] |= (byte) (1 << (k & 7));
+        else
+            data[index] &= (byte) ~(1 << (k & 7));
+    }
+
+    /**
+     * Copies another board of the same size into this one with a single System.arraycopy.
+     */
+    public void copyFrom(PackedBoard other) {
+        System.arraycopy(other.data, other.base, data, base, recordSize);
+    }
+
+    /**
+     * Returns a copy of the current board with its own record.
+     */
+    public PackedBoard copy() {
+        PackedBoard copy = new PackedBoard(N);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Fills this board from a table in the readBoard encoding.
+     * table The N x N values.
+     */
+    public void load(int[][] table) {
+        int givens = base + cells;
+        Arrays.fill(data, givens, givens + (cells + 7) / 8, (byte) 0);
+        for (int i = 0, k = 0; i < N; i++) {
+            int[] row = table[i];
+            for (int j = 0; j < N; j++, k++) {
+                int value = row[j];
+                if (value < 0) {
+                    data[base + k] = (byte) -value;
+                    data[givens + (k >>> 3)] |= (byte) (1 << (k & 7));
+                } else {
+                    data[base + k] = (byte) value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes this board into a table in the readBoard encoding.
+     * table The N x N array to fill.
+     */
+    public void store(int[][] table) {
+        int givens = base + cells;
+        for (int i = 0, k = 0; i < N; i++) {
+            int[] row = table[i];
+            for (int j = 0; j < N; j++, k++) {
+                int value = data[base + k];
+                row[j] = (data[givens + (k >>> 3)] & (1 << (k & 7))) != 0 ? -value : value;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of cells that are not empty.
+     */
+    public int filledCells() {
+        int filled = 0;
+        for (int k = base; k < base + cells; k++)
+            if (data[k] != 0)
+                filled++;
+        return filled;
+    }
+}
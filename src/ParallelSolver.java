@@ -0,0 +1,189 @@
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The ParallelSolver class splits the search tree of a single board into fork-join subtasks.
+ * Down to a shallow split depth every branch of the cell with the fewest candidates becomes its own
+ * task; below it each task finishes its subtree with a per-thread BitboardSolver.
+ * Subtasks run in the fork-join pool of the calling thread, or in the common pool.
+ * When a board has several solutions, the one written back may depend on scheduling.
+ */
+public class ParallelSolver implements Solver {
+    // The size of the Sudoku board and of its subgrids
+    private final int N;
+    private final int subgridSize;
+
+    // Number of levels of the search tree that are split into subtasks
+    private final int splitDepth;
+
+    // Sequential solver used below the split depth, one per worker thread
+    private final ThreadLocal<BitboardSolver> leafSolvers;
+
+    // Shared progress of the current search
+    private final AtomicInteger found = new AtomicInteger();
+    private final AtomicLong nodes = new AtomicLong();
+    private int limit;
+
+    /**
+     * Constructor to create a parallel solver for boards of size N.
+     * N The size of the Sudoku board, a perfect square of at most 25.
+     * splitDepth The number of search levels that are split into subtasks.
+     */
+    public ParallelSolver(int N, int splitDepth) {
+        this.N = N;
+        this.subgridSize = (int) Math.sqrt(N);
+        this.splitDepth = splitDepth;
+        new BitboardSolver(N); // Fail fast on unsupported sizes
+        this.leafSolvers = ThreadLocal.withInitial(() -> new BitboardSolver(N));
+    }
+
+    /**
+     * Constructor to create a parallel solver for boards of size N that splits the first 2 levels.
+     */
+    public ParallelSolver(int N) {
+        this(N, 2);
+    }
+
+    @Override
+    public int solve(int[][] grid, int limit) {
+        Branch root = search(grid, limit);
+        if (root.solution != null)
+            for (int i = 0; i < N; i++)
+                for (int j = 0; j < N; j++)
+                    if (grid[i][j] == 0)
+                        grid[i][j] = root.solution[i][j];
+        return root.count;
+    }
+
+    @Override
+    public int countSolutions(int[][] grid, int limit) {
+        return search(grid, limit).count;
+    }
+
+    @Override
+    public long getNodeCount() {
+        return nodes.get();
+    }
+
+    // Runs the root task on a private copy of the grid
+    private Branch search(int[][] grid, int limit) {
+        this.limit = limit;
+        found.set(0);
+        nodes.set(0);
+        long start = Metrics.start();
+        Branch root = new Branch(copy(grid), 0);
+        if (grid.length == N && limit > 0)
+            root.invoke();
+        Metrics.SOLVE_PARALLEL.stop(start);
+        return root;
+    }
+
+    private int[][] copy(int[][] grid) {
+        int[][] temp = new int[grid.length][];
+        for (int i = 0; i < grid.length; i++)
+            temp[i] = grid[i].clone();
+        return temp;
+    }
+
+    /**
+     * One subtree of the search: the grid with the values chosen by its ancestors filled in.
+     */
+    private class Branch extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[][] grid;
+        private final int depth;
+
+        // Results: the number of solutions in this subtree and the first one in branch order
+        private int count;
+        private int[][] solution;
+
+        Branch(int[][] grid, int depth) {
+            this.grid = grid;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (found.get() >= limit)
+                return;
+            if (depth < splitDepth && split())
+                return;
+
+            // Finish this subtree sequentially
+            BitboardSolver solver = leafSolvers.get();
+            count = solver.solve(grid, limit);
+            nodes.addAndGet(solver.getNodeCount());
+            if (count > 0) {
+                solution = grid;
+                found.addAndGet(count);
+            }
+        }
+
+        /**
+         * Forks one subtask per candidate of the empty cell with the fewest candidates.
+         * returns false if the grid cannot be split (no empty cell or malformed rows).
+         */
+        private boolean split() {
+            int bestRow = -1, bestCol = -1, bestCandidates = 0, bestCount = N + 1;
+            for (int i = 0; i < N && bestCount > 0; i++) {
+                if (grid[i].length != N)
+                    return false;
+                for (int j = 0; j < N; j++) {
+                    if (grid[i][j] != 0)
+                        continue;
+                    int candidates = candidates(i, j);
+                    int c = Integer.bitCount(candidates);
+                    if (c < bestCount) {
+                        bestRow = i;
+                        bestCol = j;
+                        bestCandidates = candidates;
+                        bestCount = c;
+                        if (c == 0)
+                            break;
+                    }
+                }
+            }
+            if (bestRow < 0)
+                return false;
+            nodes.incrementAndGet();
+            // The leaf searches count their own nodes
+            Metrics.SEARCH_NODES.add(1);
+
+            Branch[] children = new Branch[bestCount];
+            for (int k = 0; k < bestCount; k++) {
+                int bit = Integer.lowestOneBit(bestCandidates);
+                bestCandidates ^= bit;
+                int[][] child = copy(grid);
+                child[bestRow][bestCol] = Integer.numberOfTrailingZeros(bit) + 1;
+                children[k] = new Branch(child, depth + 1);
+            }
+            ForkJoinTask.invokeAll(children);
+
+            // Combine in branch order so the reported solution does not depend on which task finished first
+            for (Branch child : children) {
+                if (child.solution != null && solution == null)
+                    solution = child.solution;
+                count = Math.min(limit, count + child.count);
+            }
+            return true;
+        }
+
+        // Returns the values not used in the row, column and subgrid of cell (i, j)
+        private int candidates(int i, int j) {
+            int used = 0;
+            int startRow = i / subgridSize * subgridSize, startCol = j / subgridSize * subgridSize;
+            for (int x = 0; x < N; x++) {
+                used |= bit(grid[i][x]) | bit(grid[x][j])
+                        | bit(grid[startRow + x / subgridSize][startCol + x % subgridSize]);
+            }
+            return ((1 << N) - 1) & ~used;
+        }
+
+        private int bit(int value) {
+            return value == 0 || Math.abs(value) > N ? 0 : 1 << (Math.abs(value) - 1);
+        }
+    }
+}
@@ -0,0 +1,275 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The PuzzleGenerator class creates Sudoku puzzles that have exactly one solution.
+ * A random full grid is produced by solving an empty grid with a randomized branch order, then clues
+ * are removed in random order as long as the solution stays unique and the puzzle stays inside the
+ * requested difficulty band. Puzzles use the Board.readBoard encoding (negative givens, 0 for empty).
+ * An instance is not thread-safe; stream runs one instance per worker thread.
+ */
+public class PuzzleGenerator {
+
+    /**
+     * Difficulty bands, defined by the fraction of cells left as clues and by whether the
+     * puzzle can be finished with naked and hidden singles alone.
+     */
+    public enum Difficulty {
+        EASY(0.45, true),
+        MEDIUM(0.35, true),
+        HARD(0.0, false);
+
+        // Clues are never removed below this fraction of the cells
+        private final double minClues;
+
+        // True if every puzzle must be solvable by singles, false if it must need guessing
+        private final boolean singlesOnly;
+
+        Difficulty(double minClues, boolean singlesOnly) {
+            this.minClues = minClues;
+            this.singlesOnly = singlesOnly;
+        }
+    }
+
+    // Number of attempts at a HARD puzzle before a grid that only needs singles is accepted
+    private static final int HARD_ATTEMPTS = 8;
+
+    // Smallest board with HARD puzzles; every unique 4x4 puzzle falls to singles
+    private static final int MIN_HARD_N = 9;
+
+    // Search nodes a uniqueness check may visit per cell before the removal is given up as too costly
+    private static final int NODES_PER_CELL = 16;
+
+    // How often a consumer waiting for a puzzle checks whether a worker has failed
+    private static final long FAILURE_CHECK_MILLIS = 100;
+
+    // The size of the Sudoku board and the number of cells
+    private final int N;
+    private final int cells;
+
+    private final SplittableRandom random;
+
+    // Randomized solver that fills empty grids, and plain solver that checks uniqueness
+    private final BitboardSolver filler;
+    private final BitboardSolver checker;
+
+    // Cell removal order, reshuffled for every puzzle
+    private final int[] order;
+
+    /**
+     * Constructor to create a generator for boards of size N.
+     * N The size of the Sudoku board, a perfect square of at most 25.
+     * random The source of randomness; the same seed generates the same puzzles.
+     */
+    public PuzzleGenerator(int N, SplittableRandom random) {
+        this.N = N;
+        this.cells = N * N;
+        this.random = random;
+        this.filler = new BitboardSolver(N);
+        this.filler.setRandom(random);
+        this.checker = new BitboardSolver(N);
+        this.order = new int[cells];
+        for (int k = 0; k < cells; k++)
+            order[k] = k;
+    }
+
+    /**
+     * Generates one puzzle of the given difficulty.
+     * A HARD puzzle needs a guess unless HARD_ATTEMPTS grids in a row could all be finished with
+     * singles; the last of them is then returned as it is. HARD is refused below MIN_HARD_N.
+     * returns a new N x N grid whose non-zero cells are all givens.
+     */
+    public int[][] generate(Difficulty difficulty) {
+        checkDifficulty(N, difficulty);
+        int[][] grid = new int[N][N];
+        for (int attempt = 1; ; attempt++) {
+            for (int[] row : grid)
+                Arrays.fill(row, 0);
+            filler.solve(grid);
+            for (int[] row : grid)
+                for (int j = 0; j < N; j++)
+                    row[j] = -row[j];
+            removeClues(grid, difficulty);
+
+            // A HARD puzzle must need at least one guess; give up after a few grids
+            if (difficulty != Difficulty.HARD || attempt >= HARD_ATTEMPTS)
+                return grid;
+            checker.setNodeLimit(Long.MAX_VALUE);
+            checker.countSolutions(grid, 2);
+            if (checker.getNodeCount() > 1)
+                return grid;
+        }
+    }
+
+    // Throws an IllegalArgumentException if boards of size N have no puzzles of the given difficulty
+    private static void checkDifficulty(int N, Difficulty difficulty) {
+        if (difficulty == Difficulty.HARD && N < MIN_HARD_N)
+            throw new IllegalArgumentException("No hard puzzles exist for board size " + N + ", it must be at least " + MIN_HARD_N);
+    }
+
+    /**
+     * Empties cells in random order while the puzzle keeps a unique solution inside the band.
+     */
+    private void removeClues(int[][] grid, Difficulty difficulty) {
+        for (int k = cells - 1; k > 0; k--) {
+            int r = random.nextInt(k + 1);
+            int t = order[k];
+            order[k] = order[r];
+            order[r] = t;
+        }
+        // Singles-only bands allow the root node alone; otherwise unbounded checks would stall on large boards
+        checker.setNodeLimit(difficulty.singlesOnly ? 1 : (long) NODES_PER_CELL * cells);
+        int clues = cells;
+        int minClues = (int) Math.ceil(difficulty.minClues * cells);
+        for (int k = 0; k < cells && clues > minClues; k++) {
+            int i = order[k] / N, j = order[k] % N;
+            int value = grid[i][j];
+            grid[i][j] = 0;
+            boolean keep = checker.countSolutions(grid, 2) == 1 && !checker.isAborted();
+            if (keep)
+                clues--;
+            else
+                grid[i][j] = value;
+        }
+    }
+
+    /**
+     * Generates puzzles on several threads and returns them through an iterator, in completion order.
+     * N The size of the Sudoku board.
+     * difficulty The difficulty band of every puzzle.
+     * count The number of puzzles to generate.
+     * threads The number of worker threads, at least 1.
+     * seed The seed from which every worker derives its own source of randomness.
+     * If a worker fails, next throws an IllegalStateException with the failure as its cause once the
+     * puzzles generated before it are delivered, instead of waiting for puzzles that never come.
+     */
+    public static Iterator<int[][]> stream(int N, Difficulty difficulty, long count, int threads, long seed) {
+        if (threads < 1)
+            throw new IllegalArgumentException("At least one generator thread is needed, not " + threads);
+        checkDifficulty(N, difficulty);
+        BlockingQueue<int[][]> queue = new ArrayBlockingQueue<>(1024);
+        AtomicLong remaining = new AtomicLong(count);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        SplittableRandom root = new SplittableRandom(seed);
+        for (int t = 0; t < threads; t++) {
+            PuzzleGenerator generator = new PuzzleGenerator(N, root.split());
+            Thread worker = new Thread(() -> {
+                try {
+                    while (remaining.getAndDecrement() > 0)
+                        queue.put(generator.generate(difficulty));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "generator-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        return new Iterator<>() {
+            private long delivered = 0;
+
+            @Override
+            public boolean hasNext() {
+                return delivered < count;
+            }
+
+            @Override
+            public int[][] next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                try {
+                    // Wait in slices, so that a failed worker is noticed while the queue is empty
+                    int[][] puzzle;
+                    while ((puzzle = queue.poll(FAILURE_CHECK_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                        if (failure.get() != null)
+                            throw new IllegalStateException("Puzzle generation failed", failure.get());
+                    }
+                    delivered++;
+                    return puzzle;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new NoSuchElementException("Interrupted while waiting for a puzzle");
+                }
+            }
+        };
+    }
+
+    /**
+     * The main method to write puzzles to a file, one board per line in the readBoard encoding.
+     * Usage: java PuzzleGenerator <N> <count> <easy|medium|hard> <output-file> [threads] [seed]
+     * The output is a corpus for BatchSolver, DifficultyGrader and BinaryBoardFile pack-lines; Board.readBoard
+     * and Sudoku read one board per file, which BinaryBoardFile unpack writes from a packed corpus.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4 || args.length > 6) {
+            System.out.println("Please give N, the number of puzzles, easy, medium or hard, an <output-file> and an optional number of threads and seed");
+            System.out.println("The puzzles are written one per line, for BatchSolver and BinaryBoardFile pack-lines; Sudoku needs one board per file");
+            System.out.println("Hard puzzles need N of at least 9; after " + HARD_ATTEMPTS + " grids without a guess the last one is written anyway");
+            return;
+        }
+        int N, threads;
+        long count, seed;
+        Difficulty difficulty;
+        try {
+            N = Integer.parseInt(args[0]);
+            count = Long.parseLong(args[1]);
+            difficulty = Difficulty.valueOf(args[2].toUpperCase());
+            threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+            seed = args.length > 5 ? Long.parseLong(args[5]) : System.nanoTime();
+        } catch (IllegalArgumentException e) {
+            System.out.println("Please give N, the number of puzzles, easy, medium or hard, an <output-file> and an optional number of threads and seed");
+            return;
+        }
+        if (count < 1) {
+            System.out.println("Please give at least one puzzle!");
+            return;
+        }
+        if (threads < 1) {
+            System.out.println("Please give at least one thread!");
+            return;
+        }
+        if (N != 4 && N != 9 && N != 16 && N != 25) {
+            System.out.println("The allowed value for N is 4, 9, 16 or 25!");
+            return;
+        }
+        if (difficulty == Difficulty.HARD && N < MIN_HARD_N) {
+            System.out.println("Please give easy or medium for N = " + N + ", hard puzzles need N of at least " + MIN_HARD_N + "!");
+            return;
+        }
+
+        long start = System.nanoTime();
+        Iterator<int[][]> puzzles = stream(N, difficulty, count, threads, seed);
+        StringBuilder line = new StringBuilder(N * N * 4);
+        try (BufferedWriter out = Files.newBufferedWriter(Paths.get(args[3]), StandardCharsets.US_ASCII)) {
+            while (puzzles.hasNext()) {
+                line.setLength(0);
+                for (int[] row : puzzles.next())
+                    for (int value : row)
+                        line.append(value).append(' ');
+                line.setLength(line.length() - 1);
+                out.write(line.toString());
+                out.newLine();
+            }
+        } catch (IllegalStateException e) {
+            System.out.println("Error: " + e.getMessage() + ": " + e.getCause());
+            return;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d %s puzzles written to %s in %.3f s (%.0f puzzles/s) on %d threads%n",
+                count, args[2], args[3], seconds, count / seconds, threads);
+    }
+}
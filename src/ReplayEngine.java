@@ -0,0 +1,236 @@
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+
+/**
+ * The ReplayEngine class applies a recorded stream of i,j=val commands to a board without rendering.
+ * Moves go through the same rules as Sudoku.play (range check, Board.checkMove, Board.updateBoard,
+ * completion check), but nothing is printed per move; only counters are kept for a final summary.
+ * Replay stops at the save command 0,0=0 or when the board is completed, like an interactive game.
+ */
+public class ReplayEngine {
+    // Results of apply
+    public static final int ACCEPTED = 0;
+    public static final int REJECTED = 1;
+    public static final int OUT_OF_RANGE = 2;
+    public static final int SAVE = 3;
+    public static final int COMPLETED = 4;
+
+    // Size of the read buffer; a command never spans more than this many characters
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Board board;
+    private final int N;
+
+    // Reused for every command
+    private final UserChoice choice = new UserChoice();
+    private final CommandParser parser = new CommandParser();
+
+    // Summary counters; rejections are broken down by Board.checkMove result
+    private long accepted;
+    private long malformed;
+    private long outOfRange;
+    private final long[] rejected = new long[Board.DIAGONAL_RULE + 1];
+    private boolean completed;
+    private boolean saveRequested;
+
+    /**
+     * Constructor to replay moves on a board that is already loaded.
+     * board The board the moves are applied to.
+     */
+    public ReplayEngine(Board board) {
+        this.board = board;
+        this.N = board.N;
+    }
+
+    /**
+     * Applies one move with the rules of Sudoku.play.
+     * i The row index of the move.
+     * j The column index of the move.
+     * val The value to be placed in the cell, or 0 to clear it.
+     * returns ACCEPTED, REJECTED, OUT_OF_RANGE, SAVE or COMPLETED.
+     */
+    public int apply(int i, int j, int val) {
+        if (i == 0 && j == 0 && val == 0) {
+            saveRequested = true;
+            return SAVE;
+        }
+        if (i < 1 || i > N || j < 1 || j > N || val < 0 || val > N) {
+            outOfRange++;
+            return OUT_OF_RANGE;
+        }
+        int result = board.checkMove(i, j, val);
+        if (result != Board.VALID) {
+            rejected[result]++;
+            return REJECTED;
+        }
+        board.updateBoard(i, j, val);
+        accepted++;
+        if (board.checkIfSudokuIsFinished()) {
+            completed = true;
+            return COMPLETED;
+        }
+        return ACCEPTED;
+    }
+
+    /**
+     * Replays every command of a stream until it ends, a save command is read or the board is completed.
+     * Commands are separated by whitespace or ';' and parsed in place from a reused buffer.
+     * in The stream of commands.
+     * returns the number of commands read, including malformed ones.
+     */
+    public long replay(Reader in) throws IOException {
+        char[] buffer = new char[BUFFER_SIZE];
+        CharBuffer chars = CharBuffer.wrap(buffer);
+        long commands = 0;
+        int length = 0;
+        boolean eof = false;
+        while (!eof) {
+            int read = in.read(buffer, length, buffer.length - length);
+            if (read < 0)
+                eof = true;
+            else
+                length += read;
+
+            // Only parse up to the last separator, unless the stream has ended
+            int end = length;
+            if (!eof) {
+                while (end > 0 && !isSeparator(buffer[end - 1]))
+                    end--;
+                if (end == 0 && length == buffer.length)
+                    end = length; // An oversized token; it is malformed either way
+            }
+
+            parser.reset(chars, 0, end);
+            while (parser.hasNext()) {
+                commands++;
+                if (!parser.next(choice)) {
+                    malformed++;
+                    continue;
+                }
+                int result = apply(choice.getRow(), choice.getColumn(), choice.getValue());
+                if (result == SAVE || result == COMPLETED)
+                    return commands;
+            }
+
+            // Keep the unfinished command for the next read
+            System.arraycopy(buffer, end, buffer, 0, length - end);
+            length -= end;
+        }
+        return commands;
+    }
+
+    public long getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * Returns the number of moves rejected by the Sudoku rules.
+     */
+    public long getRejected() {
+        long total = 0;
+        for (long count : rejected)
+            total += count;
+        return total;
+    }
+
+    /**
+     * Returns the number of moves rejected for one reason.
+     * rule A Board.checkMove result: CELL_OCCUPIED, ROW_RULE, COLUMN_RULE, BOX_RULE or DIAGONAL_RULE.
+     */
+    public long getRejected(int rule) {
+        return rejected[rule];
+    }
+
+    public long getMalformed() {
+        return malformed;
+    }
+
+    public long getOutOfRange() {
+        return outOfRange;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public boolean isSaveRequested() {
+        return saveRequested;
+    }
+
+    /**
+     * Prints the summary: move counters, completion status and the final board.
+     */
+    public void printSummary(long commands, double seconds) {
+        System.out.printf("%d commands in %.3f s (%.0f commands/s)%n", commands, seconds, commands / seconds);
+        System.out.println("Accepted: " + accepted);
+        System.out.println("Rejected: " + getRejected() + " (occupied " + rejected[Board.CELL_OCCUPIED]
+                + ", row " + rejected[Board.ROW_RULE] + ", column " + rejected[Board.COLUMN_RULE]
+                + ", box " + rejected[Board.BOX_RULE] + ", diagonal " + rejected[Board.DIAGONAL_RULE] + ")");
+        System.out.println("Out of range: " + outOfRange);
+        System.out.println("Malformed: " + malformed);
+        System.out.println(completed ? "Game completed!!!" : "Game not completed.");
+        board.displayBoard();
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ';' || Character.isWhitespace(c);
+    }
+
+    /**
+     * The main method to replay a move script headlessly.
+     * Usage: java ReplayEngine <N> <game-file> <moves-file|->
+     * With "-" the moves are read from standard input. On a save command the board is saved to
+     * out-<game-file>, as the interactive game does.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.out.println("Please give the dimension N, a <game-file> and a <moves-file> (or - for standard input)");
+            return;
+        }
+        int N;
+        try {
+            N = Integer.parseInt(args[0]);
+        } catch (NumberFormatException e) {
+            System.out.println("Please give the dimension N, a <game-file> and a <moves-file> (or - for standard input)");
+            return;
+        }
+        if (N != 4 && N != 6 && N != 8 && N != 9 && N != 12 && N != 16 && N != 25) {
+            System.out.println("The allowed value for N is 4, 6, 8, 9, 12, 16 or 25!");
+            return;
+        }
+        Geometry geometry = Geometry.forName(System.getProperty("sudoku.variant", "standard"), N);
+        if (geometry == null) {
+            System.out.println("Unknown variant " + System.getProperty("sudoku.variant") + "! Please choose standard or diagonal.");
+            return;
+        }
+
+        Board.filename = args[1];
+        Board b = new Board(geometry);
+        b.readBoard();
+        ReplayEngine engine = new ReplayEngine(b);
+
+        long start = System.nanoTime();
+        long commands;
+        try (Reader in = args[2].equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.US_ASCII)
+                : Files.newBufferedReader(Paths.get(args[2]), StandardCharsets.US_ASCII)) {
+            commands = engine.replay(in);
+        } catch (NoSuchFileException e) {
+            System.out.println("File " + args[2] + " not found");
+            return;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        engine.printSummary(commands, seconds);
+        if (engine.isSaveRequested()) {
+            b.writeBoard("out-" + Board.filename);
+            System.out.println("Saving game to out-" + Board.filename);
+        }
+    }
+}
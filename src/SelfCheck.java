@@ -0,0 +1,625 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The SelfCheck class runs randomized checks of the invariants that the fast paths of the game rely on.
+ * Each check compares incrementally maintained state with a plain rescan of the same boards, using a
+ * fixed seed, so a failure can be reproduced by running the same check again.
+ * Usage: java SelfCheck [check...]
+ * Without arguments every check runs. One line is printed per check, and the exit status is 1 if any failed.
+ */
+public class SelfCheck {
+    // Every check, in the order they run by default
+    private static final String[] CHECKS = {"moves", "autosave", "canonical", "bulk", "reader", "counts"};
+
+    private static final long SEED = 2024;
+
+    // Random boards per check
+    private static final int ROUNDS = 200;
+
+    private SelfCheck() {
+    }
+
+    /**
+     * Runs one check.
+     * returns null if it passed, or a description of the first failure.
+     */
+    private static String run(String name, SplittableRandom random) {
+        switch (name) {
+            case "moves":
+                return checkMoves(random);
+            case "autosave":
+                try {
+                    return checkAutosave(random);
+                } catch (IOException | InterruptedException e) {
+                    return "I/O error: " + e;
+                }
+            case "canonical":
+                return checkCanonical(random);
+            case "bulk":
+                return checkBulk(random);
+            case "reader":
+                try {
+                    return checkReader(random);
+                } catch (IOException e) {
+                    return "I/O error: " + e;
+                }
+            case "counts":
+                return checkCounts(random);
+            default:
+                return "unknown check";
+        }
+    }
+
+    /**
+     * Board.checkMove and allowedValues against a rescan of the row, column and box of the cell.
+     * The boards hold repeated values, and cells are changed without the rules, so a unit often
+     * loses one of two copies of a value; the value must then stay taken in that unit.
+     */
+    private static String checkMoves(SplittableRandom random) {
+        for (int round = 0; round < ROUNDS; round++) {
+            int N = round % 2 == 0 ? 4 : 9;
+            Board b = randomBoard(N, random);
+            for (int step = 0; step < 4 * N * N; step++) {
+                int i = 1 + random.nextInt(N), j = 1 + random.nextInt(N);
+                if (b.tableau[i - 1][j - 1] >= 0)
+                    b.updateBoard(i, j, random.nextInt(N + 1));
+
+                for (int probe = 0; probe < 8; probe++) {
+                    int pi = 1 + random.nextInt(N), pj = 1 + random.nextInt(N), val = random.nextInt(N + 1);
+                    int expected = expectedMove(b.tableau, pi, pj, val);
+                    int actual = b.checkMove(pi, pj, val);
+                    if (actual != expected)
+                        return "checkMove(" + pi + "," + pj + "," + val + ") is " + actual + ", expected " + expected;
+                }
+                int allowed = 0;
+                for (int v = 1; v <= N; v++)
+                    if (b.tableau[i - 1][j - 1] == 0 && expectedMove(b.tableau, i, j, v) == Board.VALID)
+                        allowed |= 1 << (v - 1);
+                if (b.allowedValues(i, j) != allowed)
+                    return "allowedValues(" + i + "," + j + ") is " + b.allowedValues(i, j) + ", expected " + allowed;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Autosave.recover after a game stopped without closing the autosave normally, e.g. a crash.
+     * Random games long enough for several compactions are recovered as written, with a torn last
+     * log record (cut short or with a broken sequence number) and with a torn newest checkpoint slot.
+     */
+    private static String checkAutosave(SplittableRandom random) throws IOException, InterruptedException {
+        int N = 9;
+        Path dir = Files.createTempDirectory("sudoku-selfcheck");
+        Path gameFile = dir.resolve("game.txt");
+        try {
+            // Givens taken from a valid solution, since readBoard exits on a broken rule
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < N; i++) {
+                for (int j = 0; j < N; j++)
+                    sb.append(random.nextInt(4) == 0 ? -((i * 3 + i / 3 + j) % N + 1) : 0).append(' ');
+                sb.append('\n');
+            }
+            for (int round = 0; round < 12; round++) {
+                // Another game file each round, so no earlier autosave of it is recovered
+                Files.writeString(gameFile, sb.append(' '));
+                Board b = new Board(N);
+                b.setGameFile(gameFile.toString());
+                b.readBoard();
+                Autosave autosave = Autosave.open(b, gameFile);
+                b.setAutosave(autosave);
+
+                // Batches with pauses, so the background thread flushes and compacts between them
+                int moves = round % 3 == 0 ? 1 + random.nextInt(50) : 1 + random.nextInt(12000);
+                int lastCell = 0, lastOld = 0;
+                for (int m = 1; m <= moves; m++) {
+                    int cell;
+                    do {
+                        cell = random.nextInt(N * N);
+                    } while (b.tableau[cell / N][cell % N] < 0);
+                    lastCell = cell;
+                    lastOld = b.tableau[cell / N][cell % N];
+                    b.updateBoard(cell / N + 1, cell % N + 1, random.nextInt(N + 1));
+                    if (m % 1500 == 0)
+                        Thread.sleep(3 * Autosave.FLUSH_INTERVAL_MS);
+                }
+                autosave.close(false);
+                int[][] last = copy(b.tableau);
+                int[][] beforeLast = copy(b.tableau);
+                beforeLast[lastCell / N][lastCell % N] = lastOld;
+                long checkpointed = autosave.getCheckpointSequence();
+
+                String failure = expectRecovery(gameFile, N, moves, last, "intact autosave");
+                if (failure != null)
+                    return failure;
+
+                // The log holding the last record; none if the last compaction happened after it
+                Path log = null;
+                for (int k = 0; k < 2; k++) {
+                    Path candidate = dir.resolve("game.txt.wal" + k);
+                    byte[] bytes = Files.readAllBytes(candidate);
+                    if (bytes.length >= 8 && ByteBuffer.wrap(bytes, bytes.length - 8, 4).getInt() == moves)
+                        log = candidate;
+                }
+                if (log == null && checkpointed != moves)
+                    return "round " + round + ": no log holds the last of " + moves + " records";
+                if (log != null) {
+                    boolean covered = checkpointed == moves;
+                    byte[] original = Files.readAllBytes(log);
+
+                    // Cut short in the middle of the last record
+                    Files.write(log, Arrays.copyOf(original, original.length - 1 - random.nextInt(7)));
+                    failure = expectRecovery(gameFile, N, covered ? moves : moves - 1, covered ? last : beforeLast, "torn last record");
+                    if (failure != null)
+                        return failure;
+
+                    // Complete, but with a sequence number that leaves a gap
+                    byte[] garbled = original.clone();
+                    ByteBuffer.wrap(garbled).putInt(garbled.length - 8, moves + 1 + random.nextInt(1000));
+                    Files.write(log, garbled);
+                    failure = expectRecovery(gameFile, N, covered ? moves : moves - 1, covered ? last : beforeLast, "garbled last record");
+                    if (failure != null)
+                        return failure;
+                    Files.write(log, original);
+                }
+
+                // A torn newest slot: the older one and the logs still hold every change, unless no compaction ran
+                failure = tearNewestSlot(dir.resolve("game.txt.ckpt"), N, random);
+                if (failure != null)
+                    return failure;
+                failure = checkpointed > 0
+                        ? expectRecovery(gameFile, N, moves, last, "torn checkpoint")
+                        : expectRecovery(gameFile, N, -1, null, "torn only checkpoint");
+                if (failure != null)
+                    return failure;
+            }
+            return null;
+        } finally {
+            try (var files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator)
+                    Files.delete(file);
+            }
+            Files.delete(dir);
+        }
+    }
+
+    /**
+     * Canonicalizer keys and SolutionCache hits against random symmetric copies of generated puzzles.
+     * Every copy must get the key of its puzzle, and the cached solution moved back to the copy must
+     * keep its givens and break no rule. Puzzles keyed by relabeling alone are only relabeled.
+     */
+    private static String checkCanonical(SplittableRandom random) {
+        for (int N : new int[] {4, 9}) {
+            PuzzleGenerator generator = new PuzzleGenerator(N, random.split());
+            Canonicalizer canonicalizer = new Canonicalizer(N);
+            SolutionCache cache = new SolutionCache(1 << 12);
+            BitboardSolver solver = new BitboardSolver(N);
+            Board checker = new Board(N);
+            for (int round = 0; round < ROUNDS / 2; round++) {
+                int[][] puzzle = generator.generate(round % 2 == 0 || N < 9
+                        ? PuzzleGenerator.Difficulty.MEDIUM : PuzzleGenerator.Difficulty.HARD);
+                String key = canonicalizer.canonicalKey(puzzle);
+                cache.solve(copy(puzzle), solver, canonicalizer);
+                for (int variant = 0; variant < 10; variant++) {
+                    int[][] copy = symmetric(puzzle, key.charAt(0) == 'R', random);
+                    String copyKey = canonicalizer.canonicalKey(copy);
+                    if (!copyKey.equals(key))
+                        return N + "x" + N + " puzzle " + round + ": a symmetric copy has another key";
+
+                    int[][] solved = copy(copy);
+                    if (cache.solve(solved, solver, canonicalizer) != 1)
+                        return N + "x" + N + " puzzle " + round + ": the cache lost its unique solution";
+                    for (int i = 0; i < N; i++)
+                        for (int j = 0; j < N; j++)
+                            if (solved[i][j] == 0 || (copy[i][j] != 0 && solved[i][j] != copy[i][j]))
+                                return N + "x" + N + " puzzle " + round + ": the cached solution does not fit the copy";
+                    if (checker.findViolation(solved) != Board.VALID)
+                        return N + "x" + N + " puzzle " + round + ": the cached solution breaks a rule";
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * BulkValidator failure flags against a scan of the rows, columns, boxes and diagonals of every board,
+     * for batches of tables and of PackedBoard arenas whose sizes are rarely a multiple of the lanes.
+     * Boards without illegal numbers must also agree with Board.findViolation, the rule BoardReader reports.
+     */
+    private static String checkBulk(SplittableRandom random) {
+        Geometry[] geometries = {Geometry.standard(4), Geometry.rectangular(6, 2, 3), Geometry.standard(9), Geometry.diagonal(9)};
+        for (Geometry geometry : geometries) {
+            int N = geometry.N;
+            BulkValidator validator = new BulkValidator(geometry);
+            Board checker = new Board(geometry);
+            for (int round = 0; round < ROUNDS / 2; round++) {
+                int count = 1 + random.nextInt(100);
+                int from = round % 3 == 0 ? random.nextInt(count) : 0;
+                int[][][] grids = new int[count][][];
+                int[] expected = new int[count];
+                PackedBoard arena = PackedBoard.arena(N, count);
+                for (int k = 0; k < count; k++) {
+                    grids[k] = randomTable(geometry, random);
+                    expected[k] = expectedFailures(geometry, grids[k]);
+                    arena.at(k).load(grids[k]);
+                }
+
+                long[] valid = new long[(count + 63) / 64];
+                byte[] failures = new byte[count];
+                for (int pass = 0; pass < 2; pass++) {
+                    String batch = geometry + " " + (pass == 0 ? "tables" : "arena") + " round " + round;
+                    int validCount = pass == 0
+                            ? validator.validate(grids, from, count, valid, failures)
+                            : validator.validate(arena, from, count, valid, failures);
+                    int expectedCount = 0;
+                    for (int k = from; k < count; k++) {
+                        if (failures[k] != expected[k])
+                            return batch + ", board " + k + ": " + BulkValidator.describe(failures[k]) + ", expected " + BulkValidator.describe(expected[k]);
+                        if (((valid[k >>> 6] >>> k) & 1) != (expected[k] == 0 ? 1 : 0))
+                            return batch + ", board " + k + ": the valid bit does not match the failures";
+                        expectedCount += expected[k] == 0 ? 1 : 0;
+                    }
+                    if (validCount != expectedCount)
+                        return batch + ": " + validCount + " valid boards, expected " + expectedCount;
+                }
+
+                for (int k = from; k < count; k++) {
+                    if ((expected[k] & BulkValidator.RANGE_FAILED) != 0)
+                        continue;
+                    int rule = checker.findViolation(grids[k]);
+                    if (rule == Board.VALID ? expected[k] != 0 : (expected[k] & failureOf(rule)) == 0)
+                        return geometry + " round " + round + ", board " + k + ": findViolation is " + rule + ", but the failures are " + BulkValidator.describe(expected[k]);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * BoardReader statuses against Board.findViolation, for random boards written one per line and one per file.
+     * The boards often break several rules, so the reader must report the one findViolation reports first.
+     */
+    private static String checkReader(SplittableRandom random) throws IOException {
+        Geometry[] geometries = {Geometry.standard(4), Geometry.rectangular(6, 2, 3), Geometry.standard(9), Geometry.diagonal(9)};
+        Path dir = Files.createTempDirectory("sudoku-selfcheck");
+        Path lines = dir.resolve("boards.txt");
+        Path single = dir.resolve("board.txt");
+        try {
+            for (Geometry geometry : geometries) {
+                int N = geometry.N;
+                Board checker = new Board(geometry);
+                int[][] dest = new int[N][N];
+                for (int round = 0; round < ROUNDS / 4; round++) {
+                    int count = 1 + random.nextInt(20);
+                    int[][][] grids = new int[count][][];
+                    StringBuilder sb = new StringBuilder();
+                    for (int k = 0; k < count; k++) {
+                        grids[k] = randomTable(geometry, random);
+                        for (int[] row : grids[k])
+                            for (int value : row)
+                                sb.append(value).append(' ');
+                        sb.append('\n');
+                    }
+                    Files.writeString(lines, sb);
+
+                    try (BoardReader reader = new BoardReader(lines, geometry)) {
+                        for (int k = 0; k < count; k++) {
+                            int expected = expectedStatus(geometry, checker, grids[k]);
+                            int status = reader.next(dest);
+                            if (status != expected)
+                                return geometry + " round " + round + ", line " + k + ": " + BoardReader.describe(status) + ", expected " + BoardReader.describe(expected);
+                        }
+                    }
+
+                    // The first board again, one value per line as in a game file
+                    Files.writeString(single, sb.substring(0, sb.indexOf("\n") + 1).replace(' ', '\n'));
+                    try (BoardReader reader = new BoardReader(single, geometry)) {
+                        int expected = expectedStatus(geometry, checker, grids[0]);
+                        int status = reader.readFile(dest);
+                        if (status != expected)
+                            return geometry + " round " + round + ", file: " + BoardReader.describe(status) + ", expected " + BoardReader.describe(expected);
+                    }
+                }
+            }
+            return null;
+        } finally {
+            Files.deleteIfExists(lines);
+            Files.deleteIfExists(single);
+            Files.delete(dir);
+        }
+    }
+
+    // The BoardReader status of a table: ILLEGAL_NUMBER if a value is out of range, else the rule of findViolation
+    private static int expectedStatus(Geometry geometry, Board checker, int[][] table) {
+        for (int[] row : table)
+            for (int value : row)
+                if (Math.abs(value) > geometry.N)
+                    return BoardReader.ILLEGAL_NUMBER;
+        return checker.findViolation(table);
+    }
+
+    /**
+     * Board.emptyCellCount, conflictCount and the finished and solved checks against a rescan of the table.
+     * Random boards with repeated values are changed through updateBoard without the rules, undo and redo,
+     * so a unit often gains and loses copies of a value one at a time.
+     */
+    private static String checkCounts(SplittableRandom random) {
+        Geometry[] geometries = {Geometry.standard(4), Geometry.standard(9), Geometry.diagonal(9)};
+        for (int round = 0; round < ROUNDS; round++) {
+            Geometry geometry = geometries[round % geometries.length];
+            int N = geometry.N;
+            int[][] table = randomTable(geometry, random);
+            Board b = new Board(geometry);
+            for (int i = 0; i < N; i++)
+                for (int j = 0; j < N; j++)
+                    b.tableau[i][j] = Math.abs(table[i][j]) > N ? 0 : table[i][j];
+            b.rebuildMasks();
+            b.startJournal();
+
+            for (int step = 0; step <= 4 * N * N; step++) {
+                String failure = expectCounts(geometry, b, geometry + " round " + round + " step " + step);
+                if (failure != null)
+                    return failure;
+                int choice = random.nextInt(8);
+                if (choice == 0) {
+                    b.undo();
+                } else if (choice == 1) {
+                    b.redo();
+                } else {
+                    int i = 1 + random.nextInt(N), j = 1 + random.nextInt(N);
+                    if (b.tableau[i - 1][j - 1] >= 0)
+                        b.updateBoard(i, j, random.nextInt(N + 1));
+                }
+            }
+
+            // The counts rebuilt from the table must be the ones kept up to date
+            Board copy = new Board(geometry);
+            copy.copyFrom(b);
+            if (copy.emptyCellCount() != b.emptyCellCount() || copy.conflictCount() != b.conflictCount())
+                return geometry + " round " + round + ": rebuildMasks counts differ from the ones kept by the moves";
+        }
+        return null;
+    }
+
+    // A copy of the grid under random relabeling and, unless relabelOnly, random line, band and stack permutations and transposition
+    private static int[][] symmetric(int[][] grid, boolean relabelOnly, SplittableRandom random) {
+        int N = grid.length, s = (int) Math.sqrt(N);
+        int[] label = permutation(N + 1, 1, random);
+        int[] rows = new int[N], cols = new int[N];
+        int[] bands = permutation(s, 0, random), stacks = permutation(s, 0, random);
+        for (int b = 0; b < s; b++) {
+            int[] inBand = permutation(s, 0, random), inStack = permutation(s, 0, random);
+            for (int k = 0; k < s; k++) {
+                rows[b * s + k] = bands[b] * s + inBand[k];
+                cols[b * s + k] = stacks[b] * s + inStack[k];
+            }
+        }
+        boolean transpose = random.nextBoolean();
+        int[][] copy = new int[N][N];
+        for (int i = 0; i < N; i++)
+            for (int j = 0; j < N; j++) {
+                int r = relabelOnly ? i : rows[i], c = relabelOnly ? j : cols[j];
+                int value = !relabelOnly && transpose ? grid[c][r] : grid[r][c];
+                copy[i][j] = Integer.signum(value) * label[Math.abs(value)];
+            }
+        return copy;
+    }
+
+    // A random permutation of [0, n) that keeps the values below from in place
+    private static int[] permutation(int n, int from, SplittableRandom random) {
+        int[] p = new int[n];
+        for (int k = 0; k < n; k++)
+            p[k] = k;
+        for (int k = n - 1; k > from; k--) {
+            int r = from + random.nextInt(k - from + 1);
+            int t = p[k];
+            p[k] = p[r];
+            p[r] = t;
+        }
+        return p;
+    }
+
+    // Recovers the autosave of gameFile and compares it with the expected sequence number and values
+    private static String expectRecovery(Path gameFile, int N, long sequence, int[][] values, String what) throws IOException {
+        int[][] recovered = new int[N][N];
+        long actual = Autosave.recover(recovered, gameFile);
+        if (actual != sequence)
+            return what + ": recovered up to change " + actual + ", expected " + sequence;
+        if (values != null && !Arrays.deepEquals(recovered, values))
+            return what + ": recovered values differ after change " + actual;
+        return null;
+    }
+
+    // Flips a value byte of the checkpoint slot with the higher sequence number; the slots follow a 32-byte header
+    private static String tearNewestSlot(Path checkpointFile, int N, SplittableRandom random) throws IOException {
+        int header = 32, slotHeader = 16, slotSize = slotHeader + N * N;
+        try (FileChannel channel = FileChannel.open(checkpointFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (map.capacity() != header + 2 * slotSize)
+                return "checkpoint file has " + map.capacity() + " bytes";
+            int newest = map.getLong(header) >= map.getLong(header + slotSize) ? 0 : 1;
+            int at = header + newest * slotSize + slotHeader + random.nextInt(N * N);
+            map.put(at, (byte) (map.get(at) ^ 0x40));
+        }
+        return null;
+    }
+
+    private static int[][] copy(int[][] table) {
+        int[][] copy = new int[table.length][];
+        for (int i = 0; i < table.length; i++)
+            copy[i] = table[i].clone();
+        return copy;
+    }
+
+    // A standard board with givens, entries, empty cells and repeated values
+    private static Board randomBoard(int N, SplittableRandom random) {
+        Board b = new Board(N);
+        for (int i = 0; i < N; i++)
+            for (int j = 0; j < N; j++) {
+                int value = 1 + random.nextInt(N);
+                switch (random.nextInt(3)) {
+                    case 0:
+                        b.tableau[i][j] = 0;
+                        break;
+                    case 1:
+                        b.tableau[i][j] = value;
+                        break;
+                    default:
+                        b.tableau[i][j] = -value;
+                }
+            }
+        b.rebuildMasks();
+        return b;
+    }
+
+    // A sparse, half-filled or solved table of the geometry; solved tables get a few random changes, and some tables an illegal number
+    private static int[][] randomTable(Geometry geometry, SplittableRandom random) {
+        int N = geometry.N;
+        int[][] table = new int[N][N];
+        int density = random.nextInt(3);
+        for (int i = 0; i < N; i++)
+            for (int j = 0; j < N; j++) {
+                int value = density == 2
+                        ? (i * geometry.boxColumns + i / geometry.boxRows + j) % N + 1
+                        : random.nextInt(density == 0 ? 8 : 2) == 0 ? 1 + random.nextInt(N) : 0;
+                table[i][j] = random.nextBoolean() ? -value : value;
+            }
+        for (int changes = density == 2 ? random.nextInt(3) : 0; changes > 0; changes--)
+            table[random.nextInt(N)][random.nextInt(N)] = random.nextInt(N + 1);
+        if (random.nextInt(8) == 0)
+            table[random.nextInt(N)][random.nextInt(N)] = (random.nextBoolean() ? 1 : -1) * (N + 1 + random.nextInt(N));
+        return table;
+    }
+
+    // The BulkValidator failure flags of a table, found by scanning its units by their coordinates
+    private static int expectedFailures(Geometry geometry, int[][] table) {
+        int N = geometry.N;
+        int code = 0;
+        for (int[] row : table)
+            for (int value : row)
+                if (Math.abs(value) > N)
+                    code |= BulkValidator.RANGE_FAILED;
+        int[][] units = units(geometry, table);
+        for (int u = 0; u < units.length; u++)
+            if (repeats(units[u]))
+                code |= 1 << Math.min(u / N, Geometry.DIAGONAL);
+        return code;
+    }
+
+    // The values of the rows, columns, boxes and, on diagonal boards, both diagonals of a table, in that order
+    private static int[][] units(Geometry geometry, int[][] table) {
+        int N = geometry.N, perBand = N / geometry.boxColumns;
+        int[][] units = new int[geometry.isStandard() ? 3 * N : 3 * N + 2][N];
+        for (int a = 0; a < N; a++) {
+            int top = a / perBand * geometry.boxRows, left = a % perBand * geometry.boxColumns;
+            for (int b = 0; b < N; b++) {
+                units[a][b] = table[a][b];
+                units[N + a][b] = table[b][a];
+                units[2 * N + a][b] = table[top + b / geometry.boxColumns][left + b % geometry.boxColumns];
+            }
+            if (!geometry.isStandard()) {
+                units[3 * N][a] = table[a][a];
+                units[3 * N + 1][a] = table[a][N - 1 - a];
+            }
+        }
+        return units;
+    }
+
+    // Compares the counts of a board with a scan of its table
+    private static String expectCounts(Geometry geometry, Board b, String where) {
+        int N = geometry.N;
+        int empty = 0;
+        for (int[] row : b.tableau)
+            for (int value : row)
+                empty += value == 0 ? 1 : 0;
+        int conflicts = 0;
+        for (int[] unit : units(geometry, b.tableau)) {
+            int[] copies = new int[N + 1];
+            for (int value : unit)
+                if (value != 0 && copies[Math.abs(value)]++ > 0)
+                    conflicts++;
+        }
+        if (b.emptyCellCount() != empty)
+            return where + ": " + b.emptyCellCount() + " empty cells, expected " + empty;
+        if (b.conflictCount() != conflicts)
+            return where + ": " + b.conflictCount() + " conflicts, expected " + conflicts;
+        if (b.checkIfSudokuIsFinished() != (empty == 0) || b.checkIfSudokuIsSolved() != (empty == 0 && conflicts == 0))
+            return where + ": finished or solved does not match " + empty + " empty cells and " + conflicts + " conflicts";
+        return null;
+    }
+
+    // Checks if a unit holds a legal number more than once
+    private static boolean repeats(int[] unit) {
+        for (int a = 0; a < unit.length; a++)
+            for (int b = a + 1; b < unit.length; b++)
+                if (unit[a] != 0 && Math.abs(unit[a]) <= unit.length && Math.abs(unit[a]) == Math.abs(unit[b]))
+                    return true;
+        return false;
+    }
+
+    // The BulkValidator flag of a rule returned by Board.findViolation
+    private static int failureOf(int rule) {
+        switch (rule) {
+            case Board.ROW_RULE:
+                return BulkValidator.ROW_FAILED;
+            case Board.COLUMN_RULE:
+                return BulkValidator.COLUMN_FAILED;
+            case Board.BOX_RULE:
+                return BulkValidator.BOX_FAILED;
+            case Board.DIAGONAL_RULE:
+                return BulkValidator.DIAGONAL_FAILED;
+            default:
+                return 0;
+        }
+    }
+
+    // The result of checkMove found by scanning the row, the column and the box of cell (i, j)
+    private static int expectedMove(int[][] table, int i, int j, int val) {
+        int N = table.length;
+        int cell = table[i - 1][j - 1];
+        if (cell < 0 || (cell > 0 && val != 0))
+            return Board.CELL_OCCUPIED;
+        if (cell > 0 || val == 0)
+            return Board.VALID;
+        for (int k = 0; k < N; k++)
+            if (Math.abs(table[i - 1][k]) == val)
+                return Board.ROW_RULE;
+        for (int k = 0; k < N; k++)
+            if (Math.abs(table[k][j - 1]) == val)
+                return Board.COLUMN_RULE;
+        int s = (int) Math.sqrt(N);
+        int top = (i - 1) / s * s, left = (j - 1) / s * s;
+        for (int r = top; r < top + s; r++)
+            for (int c = left; c < left + s; c++)
+                if (Math.abs(table[r][c]) == val)
+                    return Board.BOX_RULE;
+        return Board.VALID;
+    }
+
+    /**
+     * The main method to run the checks.
+     * Usage: java SelfCheck [check...]
+     */
+    public static void main(String[] args) {
+        String[] names = args.length > 0 ? args : CHECKS;
+        boolean failed = false;
+        for (String name : names) {
+            long start = System.nanoTime();
+            String failure = run(name, new SplittableRandom(SEED));
+            double seconds = (System.nanoTime() - start) / 1e9;
+            if (failure == null) {
+                System.out.printf("%-8s ok (%.2f s)%n", name, seconds);
+            } else {
+                System.out.printf("%-8s FAILED: %s%n", name, failure);
+                failed = true;
+            }
+        }
+        System.exit(failed ? 1 : 0);
+    }
+}
@@ -0,0 +1,120 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The SolutionCache class remembers the solve results of puzzles by their canonical key, so a puzzle
+ * that was already solved, or is a relabeled, permuted or transposed copy of one, is not solved again.
+ * The solution is stored in canonical form and moved back to the coordinates and digits of each query.
+ * The cache is bounded: it is split into segments, each a LinkedHashMap in access order behind its own
+ * lock, and each segment evicts its least recently used entry when it is full. Threads working on
+ * different keys rarely wait for each other.
+ */
+public class SolutionCache {
+    // Number of independently locked segments
+    private static final int SEGMENTS = 64;
+
+    /**
+     * The cached result of one canonical puzzle.
+     */
+    static final class Entry {
+        // Number of solutions found with a limit of 2: 0 for none, 1 for unique, 2 for more than one
+        final int solutions;
+        // The first solution in canonical form, or null if there is none
+        final int[] solution;
+
+        Entry(int solutions, int[] solution) {
+            this.solutions = solutions;
+            this.solution = solution;
+        }
+    }
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    // Lookups that found an entry, and lookups that had to solve
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Constructor to create a cache of at most capacity puzzles.
+     * capacity The total number of entries, spread over the segments.
+     */
+    public SolutionCache(int capacity) {
+        int perSegment = Math.max(1, (capacity + SEGMENTS - 1) / SEGMENTS);
+        for (int k = 0; k < SEGMENTS; k++)
+            segments[k] = new Segment(perSegment);
+    }
+
+    /**
+     * Solves a grid like solver.solve(grid, 2), unless its canonical puzzle is in the cache.
+     * grid The N x N grid in the Board.readBoard encoding; its empty cells receive the first solution.
+     * solver The solver used on a miss.
+     * canonicalizer The canonicalizer of the calling thread.
+     * returns the number of solutions, between 0 and 2.
+     */
+    public int solve(int[][] grid, Solver solver, Canonicalizer canonicalizer) {
+        String key = canonicalizer.canonicalKey(grid);
+        Entry entry = get(key);
+        if (entry != null) {
+            hits.increment();
+            if (entry.solution != null)
+                canonicalizer.fromCanonical(entry.solution, grid);
+            return entry.solutions;
+        }
+        misses.increment();
+        int solutions = solver.solve(grid, 2);
+        int[] solution = null;
+        if (solutions > 0) {
+            solution = new int[grid.length * grid.length];
+            canonicalizer.toCanonical(grid, solution);
+        }
+        put(key, new Entry(solutions, solution));
+        return solutions;
+    }
+
+    Entry get(String key) {
+        Segment segment = segmentOf(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    void put(String key, Entry entry) {
+        Segment segment = segmentOf(key);
+        synchronized (segment) {
+            segment.put(key, entry);
+        }
+    }
+
+    private Segment segmentOf(String key) {
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * A LinkedHashMap in access order that drops its least recently used entry when it is full.
+     */
+    private static class Segment extends LinkedHashMap<String, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * The Solver interface represents an algorithm that fills the empty cells of a Sudoku board.
+ * Grids use the same encoding as Board.readBoard: negative values are givens, positive values are
+ * user entries and 0 marks an empty cell. Solutions are written back as positive values so that
+ * the givens stay recognisable.
+ * Implementations keep their search state between calls and are not thread-safe; use one per thread.
+ */
+public interface Solver {
+
+    /**
+     * Creates a solver by name for boards of size N.
+     * name "backtrack" for BitboardSolver, "dlx" for DancingLinksSolver or "parallel" for ParallelSolver.
+     * returns the solver, or null if the name is unknown.
+     */
+    static Solver forName(String name, int N) {
+        switch (name) {
+            case "backtrack":
+                return new BitboardSolver(N);
+            case "dlx":
+                return new DancingLinksSolver(N);
+            case "parallel":
+                return new ParallelSolver(N);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Searches for up to limit solutions of the grid and writes the first one found into it.
+     * grid The N x N grid to solve, modified in place when a solution exists.
+     * limit The number of solutions after which the search stops.
+     * returns the number of solutions found, between 0 and limit.
+     */
+    int solve(int[][] grid, int limit);
+
+    /**
+     * Counts the solutions of the grid without modifying it.
+     * grid The N x N grid to inspect.
+     * limit The number of solutions after which the search stops.
+     * returns the number of solutions found, between 0 and limit.
+     */
+    int countSolutions(int[][] grid, int limit);
+
+    /**
+     * Returns the number of search nodes visited by the last call to solve or countSolutions.
+     */
+    long getNodeCount();
+
+    /**
+     * Fills every empty cell of the grid.
+     * returns true if the grid was solved, false if it has no solution.
+     */
+    default boolean solve(int[][] grid) {
+        return solve(grid, 1) > 0;
+    }
+
+    /**
+     * Fills every empty cell of the board and refreshes its move-checking state.
+     * returns true if the board was solved, false if it has no solution.
+     */
+    default boolean solve(Board b) {
+        if (!solve(b.tableau))
+            return false;
+        b.rebuildMasks();
+        return true;
+    }
+
+    /**
+     * Checks if the grid has exactly one solution, as required for a well-formed puzzle.
+     */
+    default boolean hasUniqueSolution(int[][] grid) {
+        return countSolutions(grid, 2) == 1;
+    }
+
+    /**
+     * Checks if the board has exactly one solution, as required for a well-formed puzzle.
+     */
+    default boolean hasUniqueSolution(Board b) {
+        return hasUniqueSolution(b.tableau);
+    }
+}
@@ -3,20 +3,47 @@
  *  Written: 09/11/2023
  *  Last updated: 26/11/2023
  * <p>
- * Compilation: javac -cp .;./stdlib.jar Board.java UserChoice.java Sudoku.java
- * Execution: java -cp .;./stdlib.jar Sudoku <N> <game-file> *
+ * Compilation: javac -cp .;./stdlib.jar *.java
+ * Execution: java -cp .;./stdlib.jar Sudoku <N> <game-file> [backtrack|dlx|parallel] *
  * <p>
  * The Java program is a Sudoku game.
  * It enables users to interactively input moves to fill in a Sudoku board, ensuring adherence to game rules.
  * The program includes classes for managing the Sudoku board, user choices, and game logic, providing a console-based interface for playing and saving Sudoku games.
  */
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 /**
  * The Sudoku class represents the main class for playing the Sudoku game.
  */
 public class Sudoku {
-    static Scanner scanner = new Scanner(System.in);
+    // The commands of this game are read from scanner and its messages printed to out
+    private final Scanner scanner;
+    private final PrintStream out;
+
+    // The move parsed from the last command, reused for every command
+    private final UserChoice choice = new UserChoice();
+
+    /**
+     * Constructor for a game played on the console.
+     */
+    public Sudoku() {
+        this(new Scanner(System.in), System.out);
+    }
+
+    /**
+     * Constructor for a game played over other streams, e.g. one session of the GameServer.
+     * scanner The Scanner to read the commands from.
+     * out The stream to print the messages to; the board should print to the same stream.
+     */
+    public Sudoku(Scanner scanner, PrintStream out) {
+        this.scanner = scanner;
+        this.out = out;
+    }
+
     /**
      * Plays the Sudoku game using the provided board.
      * N The size of the Sudoku board.
@@ -25,9 +52,73 @@ public class Sudoku {
     public void play(int N, Board b) {
         // Initialize Scanner to get user input
 
-        // Read the Sudoku board from the file
-        b.readBoard();
+        // Resume from the move journal of a saved game, or read the Sudoku board from the file
+        if (!b.loadJournal()) {
+            b.readBoard();
+            b.startJournal();
+        }
+
+        // With -Dsudoku.autosave=true, recover the game if the last run did not end normally and keep autosaving it
+        Autosave autosave = null;
+        if (Boolean.getBoolean("sudoku.autosave"))
+            autosave = startAutosave(b);
 
+        // With -Dsudoku.ansi=true the board stays at the top of the terminal and only changed cells are redrawn
+        if (Boolean.getBoolean("sudoku.ansi"))
+            b.getRenderer().setDiffMode(true);
+
+        boolean ended = false;
+        try {
+            resume(N, b);
+            ended = true;
+        } finally {
+            // A game that was saved or completed needs no autosave; otherwise the pending moves are written
+            if (autosave != null)
+                stopAutosave(b, autosave, ended);
+        }
+
+        // Release the terminal scroll region of the diff mode
+        b.getRenderer().reset(out);
+
+        // Close the Scanner
+        scanner.close();
+    }
+
+    /**
+     * Opens the autosave of a board, replacing the board if an unfinished game is recovered.
+     * returns the autosave, or null if the files cannot be written.
+     */
+    private Autosave startAutosave(Board b) {
+        try {
+            Autosave autosave = Autosave.open(b, Paths.get(b.getGameFile()));
+            if (autosave.isRecovered()) {
+                // The journal restarts from the recovered state
+                b.startJournal();
+                out.println("Recovered the unfinished game of " + b.getGameFile());
+            }
+            b.setAutosave(autosave);
+            return autosave;
+        } catch (IOException | InvalidPathException e) {
+            out.println("Error: autosave is not available for " + b.getGameFile());
+            return null;
+        }
+    }
+
+    private void stopAutosave(Board b, Autosave autosave, boolean discard) {
+        b.setAutosave(null);
+        try {
+            autosave.close(discard);
+        } catch (IOException e) {
+            out.println("Error: autosave failed for " + b.getGameFile());
+        }
+    }
+
+    /**
+     * Runs the game loop on a board that is already loaded, until the game is saved or completed.
+     * N The size of the Sudoku board.
+     * B The Sudoku board to play.
+     */
+    public void resume(int N, Board b) {
         // Display the initial state of the Sudoku board
         b.displayBoard();
         OutputDefault(N);
@@ -35,14 +126,15 @@ public class Sudoku {
         // Main game loop
         while (true) {
             // Get user input for the move
-            UserChoice choice;
-            choice = getUserInput(N, b);
-            int i = choice.getRow();
-            int j = choice.getColumn();
-            int val = choice.getValue();
-
-            // Check if the user wants to save and end the game
-            if (i == 0 && j == 0 && val == 0) {
+            UserChoice choice = getUserInput(N, b);
+            int i = choice != null ? choice.getRow() : -1;
+            int j = choice != null ? choice.getColumn() : -1;
+            int val = choice != null ? choice.getValue() : -1;
+
+            if (choice == null) {
+                // An undo or redo command, already applied to the board
+            } else if (i == 0 && j == 0 && val == 0) {
+                // The user wants to save and end the game
                 b.saveBoard();
                 break;
             } else if (i >= 1 && i <= N && j >= 1 && j <= N && val >= 0 && val <= N) {
@@ -50,13 +142,13 @@ public class Sudoku {
                     // Clear the cell if the user chose to clear
                     if (b.isValidMove(i, j, 0)) {
                         b.updateBoard(i, j, 0);
-                        System.out.println("Cell (" + i + "," + j + ") cleared.");
+                        out.println("Cell (" + i + "," + j + ") cleared.");
                     }
                 } else {
                     // Make a move and update the board
                     if (b.isValidMove(i, j, val)) {
                         b.updateBoard(i, j, val);
-                        System.out.println("Value inserted!");
+                        out.println("Value inserted!");
                     } else {
                         // Invalid move, display the board and try again
                         b.displayBoard();
@@ -66,7 +158,7 @@ public class Sudoku {
                 }
             } else {
                 // Invalid input for i, j, or val, display the board and try again
-                System.out.println("Error: i, j, or val is outside the allowed range [1.." + N + "]!");
+                out.println("Error: i, j, or val is outside the allowed range [1.." + N + "]!");
                 b.displayBoard();
                 OutputDefault(N);
                 continue;
@@ -74,7 +166,7 @@ public class Sudoku {
 
             // Check if the Sudoku puzzle is completed
             if (b.checkIfSudokuIsFinished()) {
-                System.out.println("Game completed!!!");
+                out.println("Game completed!!!");
                 b.displayBoard();
                 break;
             }
@@ -83,29 +175,54 @@ public class Sudoku {
             b.displayBoard();
             OutputDefault(N);
         }
+    }
 
-        // Close the Scanner
-        scanner.close();
+    /**
+     * Solves the board with the given solver instead of playing it, and reports if the solution is unique.
+     * b The Sudoku board to solve.
+     * solver The solver to use.
+     */
+    public static void solve(Board b, Solver solver) {
+        b.readBoard();
+        int solutions = solver.solve(b.tableau, 2);
+        if (solutions == 0) {
+            System.out.println("This Sudoku has no solution!");
+            return;
+        }
+        b.rebuildMasks();
+        b.displayBoard();
+        System.out.println(solutions == 1 ? "The solution is unique." : "The solution is not unique!");
     }
 
     /**
      * Gets and validates user input for the Sudoku move.
-     * scanner The Scanner to read user input.
      * N The size of the Sudoku board.
      * b The Sudoku board.
-     * returns the UserChoice object representing the user's move.
+     * returns the UserChoice object representing the user's move, reused across calls,
+     * or null if the command was an undo or redo that has been applied.
      */
     private UserChoice getUserInput(int N, Board b) {
-        UserChoice choice;
-        do {
-            String input = scanner.next();
-            choice = parseInput(input);
-            if (choice == null) {
-                System.out.println("Error: wrong format of command!");
-                b.displayBoard();
-                OutputDefault(N);
+        out.flush();
+        String input = scanner.next();
+        while (!parseInput(input, 0, input.length(), choice)) {
+            if (input.equals("undo") || input.equals("redo")) {
+                boolean undo = input.equals("undo");
+                if (undo ? b.undo() : b.redo()) {
+                    out.println(undo ? "Move undone." : "Move redone.");
+                    return null;
+                }
+                out.println("Error: there is no move to " + input + "!");
+            } else if (input.equals("hint")) {
+                CandidateEngine.Hint hint = b.getCandidateEngine().nextHint();
+                out.println(hint != null ? hint.toString() : "No hint available.");
+            } else {
+                out.println("Error: wrong format of command!");
             }
-        } while (choice == null);
+            b.displayBoard();
+            OutputDefault(N);
+            out.flush();
+            input = scanner.next();
+        }
         return choice;
     }
     /**
@@ -114,43 +231,75 @@ public class Sudoku {
      * returns the UserChoice object representing the user's move, or null if the input is invalid.
      */
     public static UserChoice parseInput(String input) {
-        if(!input.matches("[0-9]+,[0-9]+=[0-9]+")){
-            return null;}
-        // Split the input string using '=' or ',' as separators iff the input matches the regex refrence input
-        String[] parts = input.split("[,=]");
-
-        // Check if the input has three parts (i, j, and val)
-        if (parts.length == 3) {
-            int i , j, val;
-            try {
-                // Parse the string parts to integers
-                i = Integer.parseInt(parts[0]);
-                j = Integer.parseInt(parts[1]);
-                val = Integer.parseInt(parts[2]);
-            } catch (NumberFormatException e) {
-                return null; // Return null if parsing fails
-            }
+        UserChoice choice = new UserChoice();
+        return parseInput(input, 0, input.length(), choice) ? choice : null;
+    }
 
-            // Check if it's a clear command
-            boolean isClear = val == 0;
+    /**
+     * Parses a command of the form i,j=val from input[from, to) into a reusable UserChoice.
+     * Single pass over the characters, without regular expressions or allocation.
+     * Each number is one or more ASCII digits and must fit in an int.
+     * input The characters holding the command.
+     * from The index of the first character of the command.
+     * to The index after the last character of the command.
+     * choice Receives the move; left unchanged if the command is malformed.
+     * returns true if the command is well-formed, false otherwise.
+     */
+    public static boolean parseInput(CharSequence input, int from, int to, UserChoice choice) {
+        long start = Metrics.start();
+        boolean parsed = parse(input, from, to, choice);
+        Metrics.PARSE_INPUT.stop(start);
+        return parsed;
+    }
+
+    private static boolean parse(CharSequence input, int from, int to, UserChoice choice) {
+        int i = 0, j = 0;
+        int pos = from;
+        for (int field = 0; field < 3; field++) {
+            int start = pos;
+            long value = 0;
+            while (pos < to) {
+                char c = input.charAt(pos);
+                if (c < '0' || c > '9')
+                    break;
+                value = value * 10 + (c - '0');
+                if (value > Integer.MAX_VALUE)
+                    return false;
+                pos++;
+            }
+            if (pos == start)
+                return false;
 
-            // Create and return a new UserChoice object
-            return new UserChoice(i, j, val, isClear);
-        } else {
-            return null; // Invalid input format
+            if (field == 0) {
+                i = (int) value;
+                if (pos == to || input.charAt(pos++) != ',')
+                    return false;
+            } else if (field == 1) {
+                j = (int) value;
+                if (pos == to || input.charAt(pos++) != '=')
+                    return false;
+            } else {
+                if (pos != to)
+                    return false;
+                // A value of 0 is a clear command
+                choice.set(i, j, (int) value, value == 0);
+            }
         }
+        return true;
     }
     /**
      * Outputs the default instructions for the user.
      * N The size of the Sudoku board.
      */
-    private static void OutputDefault(int N) {
-        System.out.println("Enter your command in the following format:");
-        System.out.println("+ i,j=val: for entering val at position (i,j)");
-        System.out.println("+ i,j=0  : for clearing cell (i,j)");
-        System.out.println("+ 0,0=0  : for saving and ending the game");
-        System.out.println("Notice: i, j, val numbering is from [1.." + N + "]");
-        System.out.print("> ");
+    private void OutputDefault(int N) {
+        out.println("Enter your command in the following format:");
+        out.println("+ i,j=val: for entering val at position (i,j)");
+        out.println("+ i,j=0  : for clearing cell (i,j)");
+        out.println("+ undo, redo: for taking back or repeating a move");
+        out.println("+ hint   : for a hint about the next move");
+        out.println("+ 0,0=0  : for saving and ending the game");
+        out.println("Notice: i, j, val numbering is from [1.." + N + "]");
+        out.print("> ");
     }
 
     /**
@@ -158,8 +307,8 @@ public class Sudoku {
      */
     public static void main(String[] args) {
         // Check if the correct number of command-line arguments is provided
-        if (args.length != 2) {
-            System.out.println("Please give the dimension N followed by a <game-file> as the only 2 arguments");
+        if (args.length != 2 && args.length != 3) {
+            System.out.println("Please give the dimension N followed by a <game-file> and an optional solver (backtrack, dlx or parallel)");
             return;
         }
 
@@ -169,22 +318,39 @@ public class Sudoku {
         try {
             N = Integer.parseInt(args[0]);
 
-            if (N != 4 && N != 9) {
-                System.out.println("The allowed value for N is either 4 or 9!");
+            if (N != 4 && N != 6 && N != 8 && N != 9 && N != 12 && N != 16 && N != 25) {
+                System.out.println("The allowed value for N is 4, 6, 8, 9, 12, 16 or 25!");
                 System.out.println("Please re-run the program with a valid value for N.");
                 return;
             }
         } catch (NumberFormatException e) {
-            System.out.println("Please give the dimension N followed by a <game-file> as the only 2 arguments");
+            System.out.println("Please give the dimension N followed by a <game-file> and an optional solver (backtrack, dlx or parallel)");
             return;
         }
 
         // Get the filename from command-line arguments
         Board.filename = args[1];
-        // Create a new Sudoku board and start the game
-        Board b = new Board(N);
+        // Create a new Sudoku board of the chosen variant (-Dsudoku.variant=diagonal) and start the game
+        Geometry geometry = Geometry.forName(System.getProperty("sudoku.variant", "standard"), N);
+        if (geometry == null) {
+            System.out.println("Unknown variant " + System.getProperty("sudoku.variant") + "! Please choose standard or diagonal.");
+            return;
+        }
+        Board b = new Board(geometry);
+        if (args.length == 3) {
+            if (!geometry.isStandard() || geometry.boxRows != geometry.boxColumns) {
+                System.out.println("The solvers need a standard board with N = 4, 9, 16 or 25!");
+                return;
+            }
+            Solver solver = Solver.forName(args[2], N);
+            if (solver == null) {
+                System.out.println("Unknown solver " + args[2] + "! Please choose backtrack, dlx or parallel.");
+                return;
+            }
+            solve(b, solver);
+            return;
+        }
         Sudoku newGame = new Sudoku();
         newGame.play(N, b);
-        scanner.close();    // Closes the scanner object
     }
 }
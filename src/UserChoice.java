@@ -1,11 +1,12 @@
 /**
  * The UserChoice class represents a user's choice for a Sudoku move.
+ * Parsers may reuse one instance for many commands through set, so that parsing allocates nothing.
  */
 public class UserChoice {
-    private final int row;         // Row index for the move
-    private final int column;         // Column index for the move
-    private final int val;       // Value to be placed in the cell
-    private final boolean isClear; // Flag indicating if the user wants to clear the cell
+    private int row;         // Row index for the move
+    private int column;         // Column index for the move
+    private int val;       // Value to be placed in the cell
+    private boolean isClear; // Flag indicating if the user wants to clear the cell
 
     /**
      * Constructor to create a UserChoice object with specified values.
@@ -30,6 +31,20 @@ public class UserChoice {
         this.isClear = false;
     }
 
+    /**
+     * Overwrites this choice with a new move.
+     * i Row index for the move.
+     * j Column index for the move.
+     * val Value to be placed in the cell.
+     * isClear Flag indicating if the user wants to clear the cell.
+     */
+    public void set(int i, int j, int val, boolean isClear) {
+        this.row = i;
+        this.column = j;
+        this.val = val;
+        this.isClear = isClear;
+    }
+
     /**
      * Gets the row index for the move.
      * return The row index.
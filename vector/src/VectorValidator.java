@@ -0,0 +1,73 @@
+import java.util.Arrays;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The VectorValidator class is the jdk.incubator.vector kernel of BulkValidator.
+ * Every lane of a vector holds one board, so a block of boards is checked with the same few vector
+ * operations per cell and unit that the scalar kernel runs for a single board.
+ * It lives in its own source root so that the game compiles without the incubator module:
+ * javac --add-modules jdk.incubator.vector -cp <game classes> VectorValidator.java
+ * BulkValidator creates it by reflection, and only uses it when the JVM runs with
+ * --add-modules jdk.incubator.vector.
+ */
+final class VectorValidator implements BulkValidator.Kernel {
+    static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    // Number of boards checked together
+    static final int LANES = SPECIES.length();
+
+    VectorValidator() {
+    }
+
+    @Override
+    public int lanes() {
+        return LANES;
+    }
+
+    @Override
+    public String name() {
+        return "vector " + SPECIES;
+    }
+
+    @Override
+    public void check(Geometry geometry, int[] soa, int[] cellBits, int[] repeated, int[] codes) {
+        int N = geometry.N;
+        int[] unitCells = geometry.unitCells;
+        IntVector zero = IntVector.zero(SPECIES);
+        IntVector one = IntVector.broadcast(SPECIES, 1);
+
+        // Bit v-1 for a value v, nothing for an empty cell or an illegal number
+        IntVector range = zero;
+        for (int c = 0; c < geometry.cells; c++) {
+            IntVector v = IntVector.fromArray(SPECIES, soa, c * LANES);
+            VectorMask<Integer> bad = v.compare(VectorOperators.GT, N).or(v.compare(VectorOperators.LT, 0));
+            range = range.blend(one, bad);
+            one.lanewise(VectorOperators.LSHL, v.sub(1)).blend(zero, v.compare(VectorOperators.EQ, 0).or(bad))
+                    .intoArray(cellBits, c * LANES);
+        }
+
+        // One unit at a time, so the masks of the unit stay in registers
+        Arrays.fill(repeated, 0);
+        for (int u = 0; u < geometry.unitCount; u++) {
+            IntVector used = zero, twice = zero;
+            for (int m = u * N, end = m + N; m < end; m++) {
+                IntVector bits = IntVector.fromArray(SPECIES, cellBits, unitCells[m] * LANES);
+                twice = twice.or(used.and(bits));
+                used = used.or(bits);
+            }
+            int kind = geometry.unitKind[u] * LANES;
+            IntVector.fromArray(SPECIES, repeated, kind).or(twice).intoArray(repeated, kind);
+        }
+
+        IntVector code = zero.blend(BulkValidator.RANGE_FAILED, range.compare(VectorOperators.NE, 0));
+        for (int kind = Geometry.ROW; kind <= Geometry.DIAGONAL; kind++) {
+            VectorMask<Integer> failed = IntVector.fromArray(SPECIES, repeated, kind * LANES).compare(VectorOperators.NE, 0);
+            code = code.blend(code.or(1 << kind), failed);
+        }
+        code.intoArray(codes, 0);
+    }
+}